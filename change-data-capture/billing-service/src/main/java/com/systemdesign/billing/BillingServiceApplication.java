@@ -1,9 +1,15 @@
 package com.systemdesign.billing;
 
+import com.systemdesign.cdc.CdcConfiguration;
+import com.systemdesign.idempotency.IdempotencyConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@Import({CdcConfiguration.class, IdempotencyConfiguration.class})
 public class BillingServiceApplication {
 
     public static void main(String[] args) {
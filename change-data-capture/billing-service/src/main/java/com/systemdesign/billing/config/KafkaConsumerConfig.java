@@ -0,0 +1,77 @@
+package com.systemdesign.billing.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.systemdesign.billing.event.InventoryUpdatedEvent;
+import com.systemdesign.billing.event.OrderChangedEvent;
+import com.systemdesign.cdc.ChangeEventDeserializer;
+import com.systemdesign.cdc.FlightRecorder;
+import com.systemdesign.cdc.SchemaCatalog;
+import com.systemdesign.cdc.ThreadFactories;
+import com.systemdesign.cdc.listener.DeadLetterRecoverer;
+import com.systemdesign.cdc.listener.KeyOrderedExecutor;
+import com.systemdesign.cdc.listener.KeyOrderedRebalanceListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.serializer.DelegatingByTopicDeserializer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    // Change event topics are decoded straight into their typed records, anything else stays raw bytes
+    @Bean
+    public ConsumerFactory<Object, Object> kafkaConsumerFactory(KafkaProperties properties,
+            SchemaCatalog schemaCatalog, ObjectMapper objectMapper) {
+        DelegatingByTopicDeserializer valueDeserializer = new DelegatingByTopicDeserializer(Map.of(
+                Pattern.compile("order-(created|updated|deleted)"),
+                new ChangeEventDeserializer<>(OrderChangedEvent.READER, schemaCatalog, objectMapper.getFactory()),
+                Pattern.compile("inventory-updated"),
+                new ChangeEventDeserializer<>(InventoryUpdatedEvent.READER, schemaCatalog, objectMapper.getFactory())),
+                new ByteArrayDeserializer());
+        return new DefaultKafkaConsumerFactory<>(properties.buildConsumerProperties(null), null, valueDeserializer);
+    }
+
+    // Records are acked from the lane threads, possibly out of order; the container
+    // only commits up to the lowest offset that has not been acked yet. On a rebalance
+    // the lanes of the revoked partitions settle before that commit.
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> keyOrderedContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            List<KeyOrderedExecutor> executors,
+            @Value("${consumer.rebalance.drain.timeout.ms}") long drainTimeoutMs) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        factory.getContainerProperties().setConsumerRebalanceListener(
+                new KeyOrderedRebalanceListener(executors, Duration.ofMillis(drainTimeoutMs)));
+        return factory;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public KeyOrderedExecutor inventoryUpdateExecutor(
+            @Value("${consumer.inventory-updated.parallelism}") int parallelism,
+            @Value("${consumer.inventory-updated.queue.capacity}") int queueCapacity,
+            MeterRegistry meterRegistry,
+            FlightRecorder flightRecorder,
+            Environment environment,
+            DeadLetterRecoverer deadLetterRecoverer) {
+        return new KeyOrderedExecutor("inventory-updated", parallelism, queueCapacity, meterRegistry, flightRecorder,
+                ThreadFactories.named(environment, "inventory-updated-lane"), deadLetterRecoverer);
+    }
+}
@@ -0,0 +1,23 @@
+package com.systemdesign.billing.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A consumed CDC event whose effect has been committed, keyed by its binlog coordinates
+@Entity
+@Table(name = "processed_events", indexes = @Index(columnList = "processed_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessedEvent {
+    
+    @Id
+    private String eventId;
+    
+    @Column(nullable = false)
+    private LocalDateTime processedAt;
+}
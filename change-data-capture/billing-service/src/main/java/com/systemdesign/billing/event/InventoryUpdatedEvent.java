@@ -0,0 +1,16 @@
+package com.systemdesign.billing.event;
+
+import com.systemdesign.cdc.EventReader;
+
+// Row of the inventory table as published on inventory-updated
+public record InventoryUpdatedEvent(String operation, Long orderId, String status) {
+
+    public static final EventReader<InventoryUpdatedEvent> READER = EventReader.of(row -> new InventoryUpdatedEvent(
+            row.operation(), row.getLong("order_id"), row.getString("status")),
+            "order_id", "status");
+
+    // Re-emitted by a snapshot, the change itself was already applied
+    public boolean isSnapshotRead() {
+        return "r".equals(operation);
+    }
+}
@@ -0,0 +1,20 @@
+package com.systemdesign.billing.event;
+
+import com.systemdesign.cdc.EventReader;
+
+import java.math.BigDecimal;
+
+// Orders row or outbox event, as published on order-created, order-updated and order-deleted
+public record OrderChangedEvent(String operation, Long orderId, String status, String customerId,
+                                BigDecimal totalAmount, String productId) {
+
+    public static final EventReader<OrderChangedEvent> READER = EventReader.of(row -> new OrderChangedEvent(
+            row.operation(), row.getLong("id"), row.getString("status"), row.getString("customer_id"),
+            row.getDecimal("total_amount"), row.getString("product_id")),
+            "id", "status", "customer_id", "total_amount", "product_id");
+
+    // Outbox status changes and update diffs only carry the id and what changed
+    public boolean isPartial() {
+        return customerId == null || totalAmount == null || productId == null;
+    }
+}
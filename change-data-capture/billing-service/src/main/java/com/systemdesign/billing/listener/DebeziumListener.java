@@ -1,6 +1,20 @@
 package com.systemdesign.billing.listener;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.systemdesign.billing.cdc.IncrementalSnapshots;
+import com.systemdesign.cdc.BinaryChangeEventSerializer;
+import com.systemdesign.cdc.ChangeEventSerializer;
+import com.systemdesign.cdc.DeadLetters;
+import com.systemdesign.cdc.EventIds;
+import com.systemdesign.cdc.EventKeys;
+import com.systemdesign.cdc.FlightRecorder;
+import com.systemdesign.cdc.RateLimitedLog;
+import com.systemdesign.cdc.RelayHealthIndicator;
+import com.systemdesign.cdc.RelayMetrics;
+import com.systemdesign.cdc.RelayPublisher;
+import com.systemdesign.cdc.SchemaCatalog;
+import com.systemdesign.cdc.ThreadFactories;
+import com.systemdesign.cdc.UpdateDiff;
 import io.debezium.config.Configuration;
 import io.debezium.embedded.Connect;
 import io.debezium.engine.DebeziumEngine;
@@ -9,85 +23,237 @@ import io.debezium.engine.format.ChangeEventFormat;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.source.SourceRecord;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.Executor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @Component
-public class DebeziumListener {
-
-    private final Executor executor = Executors.newSingleThreadExecutor();
-    private final DebeziumEngine<RecordChangeEvent<SourceRecord>> debeziumEngine;
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final ObjectMapper objectMapper;
-
-    public DebeziumListener(Configuration debeziumConfig, 
-                           KafkaTemplate<String, String> kafkaTemplate,
-                           ObjectMapper objectMapper) {
-        this.kafkaTemplate = kafkaTemplate;
-        this.objectMapper = objectMapper;
-        
-        this.debeziumEngine = DebeziumEngine.create(ChangeEventFormat.of(Connect.class))
-                .using(debeziumConfig.asProperties())
-                .notifying(this::handleChangeEvent)
+public class DebeziumListener implements DebeziumEngine.ChangeConsumer<RecordChangeEvent<SourceRecord>> {
+
+    private static final String TOPIC = "billing-updated";
+    private static final CompletableFuture<Void> NOTHING_TO_SEND = CompletableFuture.completedFuture(null);
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(log);
+
+    private final ScheduledExecutorService executor;
+    private final Properties engineProperties;
+    private final RelayHealthIndicator relayHealth;
+    private final long restartBackoffInitialMs;
+    private final long restartBackoffMaxMs;
+    private volatile DebeziumEngine<RecordChangeEvent<SourceRecord>> debeziumEngine;
+    // Consecutive failed runs of the engine, reset once a batch goes through
+    private volatile int restarts;
+    private volatile boolean stopping;
+    private final RelayPublisher relayPublisher;
+    private final ChangeEventSerializer serializer;
+    private final BinaryChangeEventSerializer binarySerializer = new BinaryChangeEventSerializer();
+    private final SchemaCatalog schemaCatalog;
+    private final Set<String> binaryTopics;
+    private final UpdateDiff updateDiff;
+    private final IncrementalSnapshots incrementalSnapshots;
+    private final RelayMetrics relayMetrics;
+    private final FlightRecorder flightRecorder;
+    private final long sendTimeoutMs;
+
+    public DebeziumListener(Configuration debeziumConfig,
+                           RelayPublisher relayPublisher,
+                           ObjectMapper objectMapper,
+                           IncrementalSnapshots incrementalSnapshots,
+                           SchemaCatalog schemaCatalog,
+                           RelayMetrics relayMetrics,
+                           FlightRecorder flightRecorder,
+                           RelayHealthIndicator relayHealth,
+                           @Value("${debezium.relay.send.timeout.ms}") long sendTimeoutMs,
+                           @Value("${debezium.relay.restart.backoff.initial.ms}") long restartBackoffInitialMs,
+                           @Value("${debezium.relay.restart.backoff.max.ms}") long restartBackoffMaxMs,
+                           @Value("${debezium.relay.binary.topics}") String[] binaryTopics,
+                           @Value("${debezium.relay.update.diff.columns}") String updateDiffColumns,
+                           Environment environment) {
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactories.named(environment, "debezium-engine"));
+        this.engineProperties = debeziumConfig.asProperties();
+        this.relayHealth = relayHealth;
+        this.restartBackoffInitialMs = restartBackoffInitialMs;
+        this.restartBackoffMaxMs = restartBackoffMaxMs;
+        this.relayPublisher = relayPublisher;
+        this.serializer = new ChangeEventSerializer(objectMapper);
+        this.incrementalSnapshots = incrementalSnapshots;
+        this.schemaCatalog = schemaCatalog;
+        this.relayMetrics = relayMetrics;
+        this.flightRecorder = flightRecorder;
+        this.binaryTopics = Set.copyOf(Arrays.asList(binaryTopics));
+        this.updateDiff = new UpdateDiff(updateDiffColumns);
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    // A fresh engine per run resumes from the committed offsets; what the failed run relayed but did
+    // not mark is read again
+    private void runEngine() {
+        DebeziumEngine<RecordChangeEvent<SourceRecord>> engine =
+                DebeziumEngine.create(ChangeEventFormat.of(Connect.class))
+                .using(engineProperties)
+                .using(this::handleCompletion)
+                .notifying(this)
                 .build();
+        debeziumEngine = engine;
+        // Checked after publishing the engine, so either this sees the stop or the stop sees this engine
+        if (stopping) {
+            return;
+        }
+        relayHealth.running();
+        engine.run();
+    }
+
+    @Override
+    public void handleBatch(List<RecordChangeEvent<SourceRecord>> records,
+                            DebeziumEngine.RecordCommitter<RecordChangeEvent<SourceRecord>> committer)
+            throws InterruptedException {
+        // Send the whole batch first so the producer can pipeline it, then walk the acks
+        // in binlog order: an offset is only marked once Kafka has the record
+        List<CompletableFuture<?>> acks = new ArrayList<>(records.size());
+        for (RecordChangeEvent<SourceRecord> record : records) {
+            acks.add(handleChangeEvent(record.record()));
+        }
+
+        for (int i = 0; i < records.size(); i++) {
+            awaitAck(acks.get(i));
+            committer.markProcessed(records.get(i));
+        }
+        committer.markBatchFinished();
+        restarts = 0;
     }
 
-    private void handleChangeEvent(RecordChangeEvent<SourceRecord> sourceRecordRecordChangeEvent) {
-        SourceRecord sourceRecord = sourceRecordRecordChangeEvent.record();
-        
-        log.info("Key = {}, Value = {}", sourceRecord.key(), sourceRecord.value());
+    private CompletableFuture<?> handleChangeEvent(SourceRecord sourceRecord) throws InterruptedException {
+        if (IncrementalSnapshots.NOTIFICATION_TOPIC.equals(sourceRecord.topic())) {
+            incrementalSnapshots.onNotification((Struct) sourceRecord.value());
+            return NOTHING_TO_SEND;
+        }
 
         Struct sourceRecordValue = (Struct) sourceRecord.value();
-        
         if (sourceRecordValue != null) {
+            relayMetrics.recordEvent(sourceRecordValue);
+        }
+        recordRelayIn(sourceRecord, sourceRecordValue);
+
+        // Signals and snapshot watermarks are captured from the binlog too, they are not business data
+        if (sourceRecordValue != null && !incrementalSnapshots.isSignalTable(sourceRecordValue.getStruct("source"))) {
             String operation = sourceRecordValue.getString("op");
-            
-            if ("c".equals(operation) || "u".equals(operation)) {
-                Struct after = (Struct) sourceRecordValue.get("after");
-                Map<String, Object> payload = new HashMap<>();
-                payload.put("operation", operation);
-                payload.put("data", extractData(after));
-                
+
+            // "r" are rows re-emitted by a snapshot, consumers skip them for side effects
+            if ("c".equals(operation) || "u".equals(operation) || "r".equals(operation)) {
+                Struct after = "u".equals(operation)
+                        ? updateData(sourceRecord, sourceRecordValue)
+                        : (Struct) sourceRecordValue.get("after");
+                if (after == null) {
+                    return NOTHING_TO_SEND;
+                }
+
+                String key = EventKeys.fromRecordKey(sourceRecord.key());
+                byte[] message;
                 try {
-                    String message = objectMapper.writeValueAsString(payload);
-                    kafkaTemplate.send("billing-updated", message);
-                    log.info("Sent billing CDC event to Kafka - Operation: {}", operation);
+                    long startNanos = System.nanoTime();
+                    message = encode(TOPIC, operation, after);
+                    relayMetrics.recordConversion(TOPIC, message, startNanos);
                 } catch (Exception e) {
-                    log.error("Error sending CDC event to Kafka", e);
+                    // Sent and acked like any other record, so its offset is only committed once it is kept
+                    rateLimitedLog.error("Error converting CDC event, sending it to the dead-letter topic", e);
+                    return relayPublisher.send(DeadLetters.of(TOPIC, key, sourceRecordValue, e));
+                }
+
+                ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(TOPIC, key, message);
+                String eventId = EventIds.fromSource(sourceRecordValue);
+                if (eventId != null) {
+                    producerRecord.headers().add(EventIds.HEADER, EventIds.toHeaderValue(eventId));
                 }
+
+                // Blocks the engine thread while the in-flight caps are reached
+                return relayPublisher.send(producerRecord);
             }
         }
+        return NOTHING_TO_SEND;
+    }
+
+    // Topic, key, binlog coordinates and operation only, never the row images
+    private void recordRelayIn(SourceRecord sourceRecord, Struct value) {
+        flightRecorder.record(FlightRecorder.Stage.RELAY_IN, sourceRecord.topic(), -1, -1,
+                EventKeys.fromRecordKey(sourceRecord.key()),
+                value == null ? null : EventIds.fromSource(value),
+                value == null ? "tombstone" : value.getString("op"));
+    }
+
+    // Tables in update-diff mode relay the key and the changed columns; null when nothing relayed changed
+    private Struct updateData(SourceRecord sourceRecord, Struct value) {
+        Struct after = value.getStruct("after");
+        Struct source = value.getStruct("source");
+        String table = source.getString("db") + "." + source.getString("table");
+        return updateDiff.isEnabled(table)
+                ? updateDiff.diff(table, value.getStruct("before"), after, sourceRecord.keySchema())
+                : after;
+    }
+
+    private byte[] encode(String topic, String operation, Struct data) {
+        if (binaryTopics.contains(topic)) {
+            try {
+                return binarySerializer.serialize(operation, data, schemaCatalog.register(data.schema()));
+            } catch (RuntimeException e) {
+                // Consumers detect the format per event, so one row can fall back to JSON
+                rateLimitedLog.warn("Unable to encode {} event in the binary format, sending it as JSON", topic, e);
+            }
+        }
+        return serializer.serialize(operation, data);
+    }
+
+    private void awaitAck(CompletableFuture<?> ack) throws InterruptedException {
+        try {
+            ack.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Offsets stay at the last acknowledged record, so the engine resumes from here on restart
+            throw new IllegalStateException("CDC event was not acknowledged by Kafka", e);
+        }
     }
 
-    private Map<String, Object> extractData(Struct struct) {
-        Map<String, Object> data = new HashMap<>();
-        for (Field field : struct.schema().fields()) {
-            data.put(field.name(), struct.get(field));
+    // Runs on the engine thread as the run ends; the restart is queued behind it on the same thread
+    private void handleCompletion(boolean success, String message, Throwable error) {
+        if (stopping) {
+            return;
         }
-        return data;
+        long delayMs = Math.min(restartBackoffMaxMs, restartBackoffInitialMs << Math.min(restarts, 20));
+        restarts++;
+        log.error("Debezium engine for Billing Service stopped: {}, restarting in {} ms", message, delayMs, error);
+        relayHealth.stopped(message, error, restarts, delayMs);
+        executor.schedule(this::runEngine, delayMs, TimeUnit.MILLISECONDS);
     }
 
     @PostConstruct
     private void start() {
-        this.executor.execute(debeziumEngine);
+        this.executor.execute(this::runEngine);
         log.info("Debezium engine started for Billing Service");
     }
 
     @PreDestroy
     private void stop() throws IOException {
-        if (this.debeziumEngine != null) {
-            this.debeziumEngine.close();
-            log.info("Debezium engine stopped for Billing Service");
+        stopping = true;
+        executor.shutdown();
+        DebeziumEngine<RecordChangeEvent<SourceRecord>> engine = this.debeziumEngine;
+        if (engine != null) {
+            engine.close();
         }
+        log.info("Debezium engine stopped for Billing Service");
     }
 }
@@ -1,42 +1,73 @@
 package com.systemdesign.billing.listener;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.systemdesign.billing.event.InventoryUpdatedEvent;
 import com.systemdesign.billing.service.BillingService;
+import com.systemdesign.cdc.EventIds;
+import com.systemdesign.cdc.listener.KeyOrderedExecutor;
+import com.systemdesign.idempotency.ProcessedEventFilter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class InventoryEventListener {
 
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
     private final BillingService billingService;
-    private final ObjectMapper objectMapper;
-
-    @KafkaListener(topics = "inventory-updated", groupId = "billing-service-group")
-    public void handleInventoryUpdate(String message) {
-        try {
-            log.info("Received inventory update event: {}", message);
-            JsonNode jsonNode = objectMapper.readTree(message);
-            JsonNode data = jsonNode.get("data");
-            
-            Long orderId = data.get("order_id").asLong();
-            String status = data.get("status").asText();
-            
-            // Only create invoice if inventory was reserved successfully
-            if ("RESERVED".equals(status)) {
-                // In a real scenario, fetch order details to get amount and customer ID
-                // For demo, using placeholder values
-                billingService.createInvoice(orderId, "CUSTOMER_" + orderId, BigDecimal.valueOf(100.00));
-            }
-            
-        } catch (Exception e) {
-            log.error("Error processing inventory update event", e);
+    private final KeyOrderedExecutor inventoryUpdateExecutor;
+    private final ProcessedEventFilter processedEventFilter;
+
+    @KafkaListener(id = "inventoryUpdated", topics = "inventory-updated", groupId = "billing-service-group",
+            containerFactory = "keyOrderedContainerFactory")
+    public void handleInventoryUpdate(ConsumerRecord<String, InventoryUpdatedEvent> record, Acknowledgment ack)
+            throws InterruptedException {
+        String eventId = EventIds.fromHeaders(record.headers());
+        inventoryUpdateExecutor.executeAsync(record, lane -> applyInventoryUpdate(record.value(), eventId, lane), ack);
+    }
+
+    // The record is acked when the returned stage completes, which for an invoice waiting on its order is
+    // only once the order reaches the read model, or it waited too long. A failure propagates to the executor, which dead-letters
+    // the record before acking it.
+    private CompletableFuture<?> applyInventoryUpdate(InventoryUpdatedEvent event, String eventId, Executor lane) {
+        // Undecodable events arrive as null, the deserializer already logged them
+        if (event == null) {
+            return DONE;
+        }
+        if (processedEventFilter.isDuplicate(eventId)) {
+            log.debug("Skipping already processed inventory update event {}", eventId);
+            return DONE;
+        }
+
+        if (event.isSnapshotRead()) {
+            return DONE;
+        }
+
+        Long orderId = event.orderId();
+        String status = event.status();
+
+        // Only create invoice if inventory was reserved successfully
+        if ("RESERVED".equals(status)) {
+            return billingService.createInvoice(orderId, eventId, lane)
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        if (!(cause instanceof DuplicateKeyException)) {
+                            throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                        }
+                        log.debug("Inventory update event {} was already processed", eventId);
+                        return null;
+                    });
         }
+        return DONE;
     }
 }
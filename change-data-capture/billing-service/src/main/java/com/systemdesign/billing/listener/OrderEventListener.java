@@ -0,0 +1,68 @@
+package com.systemdesign.billing.listener;
+
+import com.systemdesign.billing.event.OrderChangedEvent;
+import com.systemdesign.billing.readmodel.OrderReadModel;
+import com.systemdesign.billing.readmodel.OrderSnapshot;
+import com.systemdesign.cdc.FlightRecorder;
+import com.systemdesign.cdc.RateLimitedLog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Feeds the order read model; positions come from the read model snapshot, not the group offsets
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderEventListener implements ConsumerSeekAware {
+
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(log);
+
+    private final OrderReadModel orderReadModel;
+    private final FlightRecorder flightRecorder;
+
+    @KafkaListener(id = "orderReadModel", topics = {"order-created", "order-updated", "order-deleted"},
+            groupId = "billing-service-order-read-model")
+    public void handleOrderEvent(ConsumerRecord<String, OrderChangedEvent> record) {
+        OrderChangedEvent event = record.value();
+        String outcome = "processed";
+        try {
+            // Undecodable events arrive as null, the deserializer already logged them
+            if (event == null) {
+                outcome = "undecodable";
+            } else if ("order-deleted".equals(record.topic())) {
+                orderReadModel.remove(event.orderId());
+            } else if (event.isPartial()) {
+                orderReadModel.patch(event.orderId(), event.status(), event.customerId(), event.totalAmount(),
+                        event.productId());
+            } else {
+                orderReadModel.upsert(event.orderId(), event.status(), new OrderSnapshot(
+                        event.customerId(),
+                        event.totalAmount(),
+                        event.productId()));
+            }
+        } catch (Exception e) {
+            outcome = "failed";
+            rateLimitedLog.error("Error processing order event for the read model", e);
+        }
+        flightRecorder.record(FlightRecorder.Stage.PROCESSED, record, outcome);
+        orderReadModel.markConsumed(record.topic(), record.partition(), record.offset());
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        for (TopicPartition partition : assignments.keySet()) {
+            Long consumed = orderReadModel.consumedOffset(partition.topic(), partition.partition());
+            if (consumed == null) {
+                callback.seekToBeginning(partition.topic(), partition.partition());
+            } else {
+                callback.seek(partition.topic(), partition.partition(), consumed + 1);
+            }
+        }
+    }
+}
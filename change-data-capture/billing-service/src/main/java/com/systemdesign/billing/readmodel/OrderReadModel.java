@@ -0,0 +1,220 @@
+package com.systemdesign.billing.readmodel;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local copy of the orders billing still has to invoice, kept up to date from the order CDC topics.
+ * The store is periodically written to disk together with the topic offsets it reflects; on restart
+ * it is loaded and consumption resumes after those offsets, or the topics are replayed from the
+ * beginning when there is no snapshot. Orders past invoicing are evicted.
+ */
+@Slf4j
+@Component
+public class OrderReadModel {
+
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final Set<String> FINISHED_STATUSES =
+            Set.of("BILLED", "PAID", "COMPLETED", "CANCELLED", "INVENTORY_FAILED");
+
+    private final Path snapshotFile;
+    private final long waitTimeoutMs;
+    private final int maxWaitingOrders;
+    private final Map<Long, OrderSnapshot> orders = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Long> offsets = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<OrderSnapshot>> waiters = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    public OrderReadModel(@Value("${order-read-model.snapshot.file}") String snapshotFile,
+                          @Value("${order-read-model.wait.timeout.ms}") long waitTimeoutMs,
+                          @Value("${order-read-model.wait.max.orders}") int maxWaitingOrders) {
+        this.snapshotFile = Path.of(snapshotFile);
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.maxWaitingOrders = maxWaitingOrders;
+    }
+
+    public void upsert(Long orderId, String status, OrderSnapshot order) {
+        if (isFinished(status)) {
+            remove(orderId);
+            return;
+        }
+        orders.put(orderId, order);
+        completeWaiter(orderId, order);
+    }
+
+    // Partial change (outbox status event or update diff): absent fields keep their current value
+    public void patch(Long orderId, String status, String customerId, BigDecimal totalAmount, String productId) {
+        if (isFinished(status)) {
+            remove(orderId);
+            return;
+        }
+        orders.computeIfPresent(orderId, (id, order) -> new OrderSnapshot(
+                customerId != null ? customerId : order.customerId(),
+                totalAmount != null ? totalAmount : order.totalAmount(),
+                productId != null ? productId : order.productId()));
+    }
+
+    // Diffs that leave the status alone carry none, and Set.of rejects null lookups
+    private static boolean isFinished(String status) {
+        return status != null && FINISHED_STATUSES.contains(status);
+    }
+
+    // Waiters of an order that is gone will never see it
+    public void remove(Long orderId) {
+        orders.remove(orderId);
+        completeWaiter(orderId, null);
+    }
+
+    private void completeWaiter(Long orderId, OrderSnapshot order) {
+        CompletableFuture<OrderSnapshot> waiter = waiters.remove(orderId);
+        if (waiter != null) {
+            waiter.complete(order);
+        }
+    }
+
+    // Called after the record at this offset has been applied
+    public void markConsumed(String topic, int partition, long offset) {
+        offsets.put(new TopicPartition(topic, partition), offset);
+        dirty = true;
+    }
+
+    public Long consumedOffset(String topic, int partition) {
+        return offsets.get(new TopicPartition(topic, partition));
+    }
+
+    public OrderSnapshot find(Long orderId) {
+        return orders.get(orderId);
+    }
+
+    // The inventory event that triggers invoicing can overtake the order-created event on its way
+    // to billing. Completes with the order once it is in the read model, or with null when it is
+    // deleted or finished first. Fails with a TimeoutException when the order does not arrive in
+    // time, and at once when too many orders are already awaited.
+    public CompletableFuture<OrderSnapshot> whenAvailable(Long orderId) {
+        OrderSnapshot order = orders.get(orderId);
+        if (order != null) {
+            return CompletableFuture.completedFuture(order);
+        }
+
+        if (waiters.size() >= maxWaitingOrders && !waiters.containsKey(orderId)) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Already waiting for " + maxWaitingOrders + " orders to reach the read model"));
+        }
+        CompletableFuture<OrderSnapshot> waiter = waiters.computeIfAbsent(orderId, id -> {
+            CompletableFuture<OrderSnapshot> future = new CompletableFuture<>();
+            future.orTimeout(waitTimeoutMs, TimeUnit.MILLISECONDS)
+                    .whenComplete((result, error) -> waiters.remove(id, future));
+            return future;
+        });
+        // The order may have arrived between the lookup and registering the waiter
+        order = orders.get(orderId);
+        if (order != null) {
+            completeWaiter(orderId, order);
+        }
+        return waiter;
+    }
+
+    public int size() {
+        return orders.size();
+    }
+
+    public int waiting() {
+        return waiters.size();
+    }
+
+    @PostConstruct
+    void load() {
+        if (!Files.exists(snapshotFile)) {
+            log.info("No order read model snapshot at {}, rebuilding from the order topics", snapshotFile);
+            return;
+        }
+        try (InputStream file = Files.newInputStream(snapshotFile);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot version");
+            }
+            int partitions = in.readInt();
+            for (int i = 0; i < partitions; i++) {
+                offsets.put(new TopicPartition(in.readUTF(), in.readInt()), in.readLong());
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                orders.put(in.readLong(), new OrderSnapshot(in.readUTF(), new BigDecimal(in.readUTF()), in.readUTF()));
+            }
+            log.info("Loaded order read model snapshot with {} orders", orders.size());
+        } catch (IOException e) {
+            log.warn("Unreadable order read model snapshot at {}, rebuilding from the order topics", snapshotFile, e);
+            offsets.clear();
+            orders.clear();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order-read-model.snapshot.interval.ms}")
+    public void snapshot() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        // Offsets are copied before the orders, so the snapshot never claims more than it contains;
+        // records applied in between are simply replayed on restart
+        Map<TopicPartition, Long> offsetsCopy = new HashMap<>(offsets);
+        Map<Long, OrderSnapshot> ordersCopy = new HashMap<>(orders);
+        try {
+            Path dir = snapshotFile.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, snapshotFile.getFileName().toString(), ".tmp");
+            try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(offsetsCopy.size());
+                for (Map.Entry<TopicPartition, Long> entry : offsetsCopy.entrySet()) {
+                    out.writeUTF(entry.getKey().topic());
+                    out.writeInt(entry.getKey().partition());
+                    out.writeLong(entry.getValue());
+                }
+                out.writeInt(ordersCopy.size());
+                for (Map.Entry<Long, OrderSnapshot> entry : ordersCopy.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeUTF(entry.getValue().customerId());
+                    out.writeUTF(entry.getValue().totalAmount().toPlainString());
+                    out.writeUTF(entry.getValue().productId());
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            log.error("Failed to write order read model snapshot to {}", snapshotFile, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        snapshot();
+    }
+}
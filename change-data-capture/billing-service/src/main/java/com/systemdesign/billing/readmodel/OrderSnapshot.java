@@ -0,0 +1,7 @@
+package com.systemdesign.billing.readmodel;
+
+import java.math.BigDecimal;
+
+// The part of an order billing needs to raise its invoice
+public record OrderSnapshot(String customerId, BigDecimal totalAmount, String productId) {
+}
@@ -2,20 +2,50 @@ package com.systemdesign.billing.service;
 
 import com.systemdesign.billing.entity.Invoice;
 import com.systemdesign.billing.entity.InvoiceStatus;
+import com.systemdesign.billing.readmodel.OrderReadModel;
 import com.systemdesign.billing.repository.InvoiceRepository;
+import com.systemdesign.cdc.RateLimitedLog;
+import com.systemdesign.idempotency.ProcessedEventFilter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class BillingService {
 
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(log);
+
     private final InvoiceRepository invoiceRepository;
+    private final OrderReadModel orderReadModel;
+    private final ProcessedEventFilter processedEventFilter;
+    private final TransactionTemplate transactionTemplate;
+
+    // Customer and amount come from the local order read model. An order that has not arrived yet parks the
+    // invoice until it does; the invoice is then written on the given executor, the record's lane, rather than
+    // on the thread that applied the order. The future completes with null, and nothing is invoiced, when the
+    // order is deleted or finished first, and fails when it does not arrive in time. The triggering event is
+    // recorded in the invoice's transaction.
+    public CompletableFuture<Invoice> createInvoice(Long orderId, String eventId, Executor executor) {
+        return orderReadModel.whenAvailable(orderId).thenApplyAsync(order -> {
+            if (order == null) {
+                rateLimitedLog.warn("Order {} was deleted or finished before reaching the read model, not invoicing",
+                        orderId);
+                return null;
+            }
+            return transactionTemplate.execute(status -> {
+                processedEventFilter.record(eventId);
+                return createInvoice(orderId, order.customerId(), order.totalAmount());
+            });
+        }, executor);
+    }
 
     @Transactional
     public Invoice createInvoice(Long orderId, String customerId, BigDecimal amount) {
@@ -26,7 +56,7 @@ public class BillingService {
         invoice.setStatus(InvoiceStatus.INVOICED);
         
         Invoice savedInvoice = invoiceRepository.save(invoice);
-        log.info("Invoice created for Order {} - Amount: {}", orderId, amount);
+        log.debug("Invoice created for Order {} - Amount: {}", orderId, amount);
         return savedInvoice;
     }
 
@@ -36,7 +66,7 @@ public class BillingService {
                 .orElseThrow(() -> new RuntimeException("Invoice not found for order"));
         
         invoice.setStatus(InvoiceStatus.PAID);
-        log.info("Invoice marked as PAID for Order {}", orderId);
+        log.debug("Invoice marked as PAID for Order {}", orderId);
         return invoiceRepository.save(invoice);
     }
 
@@ -0,0 +1,152 @@
+package com.systemdesign.benchmarks;
+
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+
+import java.math.BigDecimal;
+
+// Row images shaped like what the Debezium MySQL connector emits for the services' tables
+final class ChangeEventFixtures {
+
+    static final Schema ORDER_SCHEMA = SchemaBuilder.struct()
+            .name("order-cdc.order_db.orders.Value")
+            .field("id", Schema.INT64_SCHEMA)
+            .field("created_at", SchemaBuilder.int64().name("io.debezium.time.MicroTimestamp").build())
+            .field("customer_id", Schema.STRING_SCHEMA)
+            .field("product_id", Schema.STRING_SCHEMA)
+            .field("quantity", Schema.INT32_SCHEMA)
+            .field("status", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("total_amount", Decimal.builder(2).parameter("connect.decimal.precision", "38").build())
+            .field("updated_at", SchemaBuilder.int64().name("io.debezium.time.MicroTimestamp").build())
+            .build();
+
+    static final Schema INVENTORY_SCHEMA = SchemaBuilder.struct()
+            .name("inventory-cdc.inventory_db.inventory.Value")
+            .field("id", Schema.INT64_SCHEMA)
+            .field("available_quantity", Schema.INT32_SCHEMA)
+            .field("created_at", SchemaBuilder.int64().name("io.debezium.time.MicroTimestamp").build())
+            .field("order_id", Schema.INT64_SCHEMA)
+            .field("product_id", Schema.STRING_SCHEMA)
+            .field("quantity_reserved", Schema.INT32_SCHEMA)
+            .field("status", Schema.STRING_SCHEMA)
+            .field("updated_at", SchemaBuilder.int64().name("io.debezium.time.MicroTimestamp").build())
+            .build();
+
+    static final Schema INVOICE_SCHEMA = SchemaBuilder.struct()
+            .name("billing-cdc.billing_db.invoices.Value")
+            .field("id", Schema.INT64_SCHEMA)
+            .field("amount", Decimal.builder(2).parameter("connect.decimal.precision", "38").build())
+            .field("created_at", SchemaBuilder.int64().name("io.debezium.time.MicroTimestamp").build())
+            .field("customer_id", Schema.STRING_SCHEMA)
+            .field("order_id", Schema.INT64_SCHEMA)
+            .field("status", Schema.STRING_SCHEMA)
+            .field("updated_at", SchemaBuilder.int64().name("io.debezium.time.MicroTimestamp").build())
+            .build();
+
+    // message.key.columns of the inventory and invoices tables
+    static final Schema ORDER_ID_KEY_SCHEMA = SchemaBuilder.struct()
+            .field("order_id", Schema.INT64_SCHEMA)
+            .build();
+
+    static final Schema ID_KEY_SCHEMA = SchemaBuilder.struct()
+            .field("id", Schema.INT64_SCHEMA)
+            .build();
+
+    static final Schema SOURCE_SCHEMA = SchemaBuilder.struct()
+            .name("io.debezium.connector.mysql.Source")
+            .field("connector", Schema.STRING_SCHEMA)
+            .field("name", Schema.STRING_SCHEMA)
+            .field("ts_ms", Schema.INT64_SCHEMA)
+            .field("snapshot", SchemaBuilder.string().optional().defaultValue("false").build())
+            .field("db", Schema.STRING_SCHEMA)
+            .field("table", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("server_id", Schema.INT64_SCHEMA)
+            .field("file", Schema.STRING_SCHEMA)
+            .field("pos", Schema.INT64_SCHEMA)
+            .field("row", Schema.INT32_SCHEMA)
+            .build();
+
+    private ChangeEventFixtures() {
+    }
+
+    static Struct orderRow(long id, String status) {
+        long now = 1_729_000_000_000_000L + id * 1_000L;
+        return new Struct(ORDER_SCHEMA)
+                .put("id", id)
+                .put("created_at", now)
+                .put("customer_id", "CUST-" + (id % 1000))
+                .put("product_id", "PROD-00" + (1 + id % 5))
+                .put("quantity", (int) (1 + id % 3))
+                .put("status", status)
+                .put("total_amount", BigDecimal.valueOf(199_900 + id % 100, 2))
+                .put("updated_at", now + 2_000L);
+    }
+
+    static Struct inventoryRow(long orderId, String status) {
+        long now = 1_729_000_000_000_000L + orderId * 1_000L;
+        return new Struct(INVENTORY_SCHEMA)
+                .put("id", orderId + 10_000L)
+                .put("available_quantity", 500)
+                .put("created_at", now)
+                .put("order_id", orderId)
+                .put("product_id", "PROD-00" + (1 + orderId % 5))
+                .put("quantity_reserved", (int) (1 + orderId % 3))
+                .put("status", status)
+                .put("updated_at", now + 2_000L);
+    }
+
+    static Struct invoiceRow(long orderId, String status) {
+        long now = 1_729_000_000_000_000L + orderId * 1_000L;
+        return new Struct(INVOICE_SCHEMA)
+                .put("id", orderId + 20_000L)
+                .put("amount", BigDecimal.valueOf(199_900 + orderId % 100, 2))
+                .put("created_at", now)
+                .put("customer_id", "CUST-" + (orderId % 1000))
+                .put("order_id", orderId)
+                .put("status", status)
+                .put("updated_at", now + 2_000L);
+    }
+
+    // Debezium envelope of an update of the row, with the binlog coordinates the relay turns into event ids
+    static Struct updateEnvelope(String db, String table, Struct before, Struct after) {
+        Schema rowSchema = optional(after.schema());
+        Schema schema = SchemaBuilder.struct()
+                .name(after.schema().name().replace(".Value", ".Envelope"))
+                .field("before", rowSchema)
+                .field("after", rowSchema)
+                .field("source", SOURCE_SCHEMA)
+                .field("op", Schema.STRING_SCHEMA)
+                .field("ts_ms", Schema.OPTIONAL_INT64_SCHEMA)
+                .build();
+        Struct source = new Struct(SOURCE_SCHEMA)
+                .put("connector", "mysql")
+                .put("name", db + "-server")
+                .put("ts_ms", 1_729_000_000_000L)
+                .put("db", db)
+                .put("table", table)
+                .put("server_id", 1L)
+                .put("file", "mysql-bin.000003")
+                .put("pos", 48_213L)
+                .put("row", 0);
+        return new Struct(schema)
+                .put("before", withSchema(before, rowSchema))
+                .put("after", withSchema(after, rowSchema))
+                .put("source", source)
+                .put("op", "u")
+                .put("ts_ms", 1_729_000_000_012L);
+    }
+
+    private static Schema optional(Schema schema) {
+        SchemaBuilder builder = SchemaBuilder.struct().name(schema.name()).optional();
+        schema.fields().forEach(field -> builder.field(field.name(), field.schema()));
+        return builder.build();
+    }
+
+    private static Struct withSchema(Struct row, Schema schema) {
+        Struct copy = new Struct(schema);
+        schema.fields().forEach(field -> copy.put(field, row.get(field.name())));
+        return copy;
+    }
+}
@@ -0,0 +1,60 @@
+package com.systemdesign.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.systemdesign.cdc.ChangeEventSerializer;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Run with: java -jar target/benchmarks.jar ChangeEventSerializerBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangeEventSerializerBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ChangeEventSerializer serializer;
+    private Struct order;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        serializer = new ChangeEventSerializer(objectMapper);
+        order = ChangeEventFixtures.orderRow(42L, "INVENTORY_RESERVED");
+    }
+
+    // The relay before the streaming serializer: two HashMaps, a String, then StringSerializer's UTF-8 copy
+    @Benchmark
+    public byte[] hashMapAndObjectMapper() throws Exception {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("operation", "u");
+        Map<String, Object> data = new HashMap<>();
+        for (Field field : order.schema().fields()) {
+            data.put(field.name(), order.get(field));
+        }
+        payload.put("data", data);
+        return objectMapper.writeValueAsString(payload).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] streamingSerializer() {
+        return serializer.serialize("u", order);
+    }
+}
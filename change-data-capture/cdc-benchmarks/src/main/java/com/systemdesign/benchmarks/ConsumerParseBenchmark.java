@@ -0,0 +1,108 @@
+package com.systemdesign.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.systemdesign.cdc.BinaryChangeEventSerializer;
+import com.systemdesign.cdc.ChangeEventDeserializer;
+import com.systemdesign.cdc.ChangeEventSerializer;
+import com.systemdesign.cdc.EventSchema;
+import com.systemdesign.cdc.SchemaCatalog;
+import com.systemdesign.inventory.event.OrderCreatedEvent;
+import com.systemdesign.order.event.BillingUpdatedEvent;
+import com.systemdesign.order.event.InventoryUpdatedEvent;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.connect.data.Struct;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Run with: java -jar target/benchmarks.jar ConsumerParseBenchmark -prof gc
+// What the @KafkaListener methods get per record: the typed ChangeEventDeserializer on full-row JSON and
+// binary payloads, against the JsonNode tree the listeners parsed before typed readers
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsumerParseBenchmark {
+
+    @Param({"order-created", "inventory-updated", "billing-updated"})
+    public String topic;
+
+    private ObjectMapper objectMapper;
+    private Deserializer<?> deserializer;
+    private String[] columns;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        Struct row;
+        String operation;
+        switch (topic) {
+            case "order-created" -> {
+                row = ChangeEventFixtures.orderRow(42L, "PENDING");
+                operation = "c";
+                deserializer = new ChangeEventDeserializer<>(OrderCreatedEvent.READER, catalogOf(row),
+                        objectMapper.getFactory());
+                columns = new String[]{"id", "product_id", "quantity"};
+            }
+            case "inventory-updated" -> {
+                row = ChangeEventFixtures.inventoryRow(42L, "RESERVED");
+                operation = "u";
+                deserializer = new ChangeEventDeserializer<>(InventoryUpdatedEvent.READER, catalogOf(row),
+                        objectMapper.getFactory());
+                columns = new String[]{"order_id", "status"};
+            }
+            case "billing-updated" -> {
+                row = ChangeEventFixtures.invoiceRow(42L, "PAID");
+                operation = "u";
+                deserializer = new ChangeEventDeserializer<>(BillingUpdatedEvent.READER, catalogOf(row),
+                        objectMapper.getFactory());
+                columns = new String[]{"order_id", "status"};
+            }
+            default -> throw new IllegalArgumentException("Unknown topic " + topic);
+        }
+        json = new ChangeEventSerializer(objectMapper).serialize(operation, row);
+        binary = new BinaryChangeEventSerializer().serialize(operation, row, EventSchema.fromConnect(row.schema()));
+    }
+
+    private SchemaCatalog catalogOf(Struct row) {
+        SchemaCatalog catalog = new SchemaCatalog(null, objectMapper, "", "", 0);
+        catalog.add(EventSchema.fromConnect(row.schema()));
+        return catalog;
+    }
+
+    @Benchmark
+    public Object typedJson() {
+        return deserializer.deserialize(topic, json);
+    }
+
+    @Benchmark
+    public Object typedBinary() {
+        return deserializer.deserialize(topic, binary);
+    }
+
+    @Benchmark
+    public void jsonTree(Blackhole blackhole) throws Exception {
+        JsonNode event = objectMapper.readTree(json);
+        blackhole.consume(event.get("operation").asText());
+        JsonNode data = event.get("data");
+        for (String column : columns) {
+            blackhole.consume(data.get(column).asText());
+        }
+    }
+}
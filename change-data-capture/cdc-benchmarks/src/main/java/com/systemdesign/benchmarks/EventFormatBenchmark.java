@@ -0,0 +1,79 @@
+package com.systemdesign.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.systemdesign.cdc.BinaryChangeEvent;
+import com.systemdesign.cdc.BinaryChangeEventSerializer;
+import com.systemdesign.cdc.ChangeEventSerializer;
+import com.systemdesign.cdc.EventSchema;
+import org.apache.kafka.connect.data.Struct;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Run with: java -jar target/benchmarks.jar EventFormatBenchmark -prof gc
+// The encoded sizes of both formats are listed in the README
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventFormatBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ChangeEventSerializer jsonSerializer;
+    private BinaryChangeEventSerializer binarySerializer;
+    private EventSchema schema;
+    private Struct order;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        jsonSerializer = new ChangeEventSerializer(objectMapper);
+        binarySerializer = new BinaryChangeEventSerializer();
+        order = ChangeEventFixtures.orderRow(42L, "INVENTORY_RESERVED");
+        schema = EventSchema.fromConnect(order.schema());
+        json = jsonSerializer.serialize("u", order);
+        binary = binarySerializer.serialize("u", order, schema);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return jsonSerializer.serialize("u", order);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binarySerializer.serialize("u", order, schema);
+    }
+
+    // What the listeners did per event before typed readers: a full tree, then a few fields
+    @Benchmark
+    public void decodeJsonTree(Blackhole blackhole) throws Exception {
+        JsonNode data = objectMapper.readTree(json).get("data");
+        blackhole.consume(data.get("id").asLong());
+        blackhole.consume(data.get("product_id").asText());
+        blackhole.consume(data.get("quantity").asInt());
+    }
+
+    @Benchmark
+    public void decodeBinary(Blackhole blackhole) {
+        BinaryChangeEvent event = BinaryChangeEvent.decode(binary, schema);
+        blackhole.consume(event.getLong("id"));
+        blackhole.consume(event.getString("product_id"));
+        blackhole.consume(event.getInt("quantity"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.systemdesign.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.systemdesign.cdc.BinaryChangeEventSerializer;
+import com.systemdesign.cdc.ChangeEventSerializer;
+import com.systemdesign.cdc.EventIds;
+import com.systemdesign.cdc.EventKeys;
+import com.systemdesign.cdc.EventSchema;
+import com.systemdesign.cdc.UpdateDiff;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Run with: java -jar target/benchmarks.jar RelayConversionBenchmark -prof gc
+// The relay's per-event work for an update of each service's table, from the Debezium envelope to the
+// ProducerRecord: message key, update diff with the services' allow-lists, encoding and event id header
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelayConversionBenchmark {
+
+    private static final String DIFF_COLUMNS = "order_db.orders:status,customer_id,product_id,quantity,total_amount;"
+            + "inventory_db.inventory:status,product_id,quantity_reserved,available_quantity;"
+            + "billing_db.invoices:status,customer_id,amount";
+
+    @Param({"orders", "inventory", "invoices"})
+    public String table;
+
+    @Param({"json", "binary"})
+    public String format;
+
+    @Param({"true", "false"})
+    public boolean diff;
+
+    private ChangeEventSerializer jsonSerializer;
+    private BinaryChangeEventSerializer binarySerializer;
+    private UpdateDiff updateDiff;
+    // Stands in for SchemaCatalog.register, which caches the binary schema per Connect schema
+    private final Map<Schema, EventSchema> eventSchemas = new IdentityHashMap<>();
+    private Schema keySchema;
+    private Struct key;
+    private Struct value;
+    private String topic;
+    private String qualifiedTable;
+
+    @Setup
+    public void setUp() {
+        jsonSerializer = new ChangeEventSerializer(new ObjectMapper());
+        binarySerializer = new BinaryChangeEventSerializer();
+        updateDiff = new UpdateDiff(diff ? DIFF_COLUMNS : "");
+
+        long orderId = 42L;
+        switch (table) {
+            case "orders" -> {
+                keySchema = ChangeEventFixtures.ID_KEY_SCHEMA;
+                key = new Struct(keySchema).put("id", orderId);
+                value = ChangeEventFixtures.updateEnvelope("order_db", "orders",
+                        ChangeEventFixtures.orderRow(orderId, "PENDING"),
+                        ChangeEventFixtures.orderRow(orderId, "INVENTORY_RESERVED"));
+                topic = "order-updated";
+            }
+            case "inventory" -> {
+                keySchema = ChangeEventFixtures.ORDER_ID_KEY_SCHEMA;
+                key = new Struct(keySchema).put("order_id", orderId);
+                value = ChangeEventFixtures.updateEnvelope("inventory_db", "inventory",
+                        ChangeEventFixtures.inventoryRow(orderId, "PENDING"),
+                        ChangeEventFixtures.inventoryRow(orderId, "RESERVED"));
+                topic = "inventory-updated";
+            }
+            case "invoices" -> {
+                keySchema = ChangeEventFixtures.ORDER_ID_KEY_SCHEMA;
+                key = new Struct(keySchema).put("order_id", orderId);
+                value = ChangeEventFixtures.updateEnvelope("billing_db", "invoices",
+                        ChangeEventFixtures.invoiceRow(orderId, "INVOICED"),
+                        ChangeEventFixtures.invoiceRow(orderId, "PAID"));
+                topic = "billing-updated";
+            }
+            default -> throw new IllegalArgumentException("Unknown table " + table);
+        }
+        Struct source = value.getStruct("source");
+        qualifiedTable = source.getString("db") + "." + source.getString("table");
+    }
+
+    @Benchmark
+    public ProducerRecord<String, byte[]> convertUpdate() {
+        String messageKey = EventKeys.fromRecordKey(key);
+        String operation = value.getString("op");
+        Struct after = value.getStruct("after");
+        Struct data = updateDiff.isEnabled(qualifiedTable)
+                ? updateDiff.diff(qualifiedTable, value.getStruct("before"), after, keySchema)
+                : after;
+
+        byte[] message;
+        if ("binary".equals(format)) {
+            EventSchema schema = eventSchemas.computeIfAbsent(data.schema(), EventSchema::fromConnect);
+            message = binarySerializer.serialize(operation, data, schema);
+        } else {
+            message = jsonSerializer.serialize(operation, data);
+        }
+
+        ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(topic, messageKey, message);
+        String eventId = EventIds.fromSource(value);
+        if (eventId != null) {
+            producerRecord.headers().add(EventIds.HEADER, EventIds.toHeaderValue(eventId));
+        }
+        return producerRecord;
+    }
+}
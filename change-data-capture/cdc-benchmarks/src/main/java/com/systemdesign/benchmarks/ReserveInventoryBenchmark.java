@@ -0,0 +1,126 @@
+package com.systemdesign.benchmarks;
+
+import com.systemdesign.idempotency.ProcessedEventFilter;
+import com.systemdesign.idempotency.ProcessedEventRepository;
+import com.systemdesign.inventory.entity.Inventory;
+import com.systemdesign.inventory.repository.InventoryBatchRepository;
+import com.systemdesign.inventory.repository.InventoryRepository;
+import com.systemdesign.inventory.service.InventoryService;
+import com.systemdesign.inventory.service.StockReservationEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Run with: java -jar target/benchmarks.jar ReserveInventoryBenchmark -prof gc
+// InventoryService.reserveInventory from 8 threads against an in-memory H2: the striped reservation
+// engine against the products row update, on one hot product and spread over 16
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ReserveInventoryBenchmark {
+
+    @Param({"true", "false"})
+    public boolean engine;
+
+    @Param({"1", "16"})
+    public int products;
+
+    private final AtomicLong orderIds = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private InventoryService inventoryService;
+    private JdbcTemplate jdbcTemplate;
+
+    // Just the reservation path of inventory-service: no Debezium relay, Kafka listeners or web server
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EnableScheduling
+    @EntityScan(basePackageClasses = Inventory.class)
+    @EnableJpaRepositories(basePackageClasses = InventoryRepository.class)
+    @Import({InventoryService.class, StockReservationEngine.class, ProcessedEventFilter.class,
+            InventoryBatchRepository.class, ProcessedEventRepository.class})
+    static class ReservationContext {
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ReservationContext.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties(
+                        // The services' application.yml files are on the classpath too, none of them applies here
+                        "spring.config.name=reserve-inventory-benchmark",
+                        // H2's MySQL mode hands out duplicate identity values under concurrent inserts
+                        "spring.datasource.url=jdbc:h2:mem:inventory_db;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.hikari.maximum-pool-size=16",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.jpa.open-in-view=false",
+                        "logging.level.root=WARN",
+                        "inventory.reservation.engine.enabled=" + engine,
+                        "inventory.reservation.engine.stripes=16",
+                        "inventory.reservation.engine.flush.interval.ms=200",
+                        "processed-events.bloom.capacity=500000",
+                        "processed-events.recent.capacity=50000",
+                        "processed-events.retention.hours=168",
+                        "processed-events.purge.interval.ms=3600000")
+                .run();
+        inventoryService = context.getBean(InventoryService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < products; i++) {
+            rows.add(new Object[]{"PROD-" + i, "Product " + i, Integer.MAX_VALUE});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (product_id, product_name, available_stock) VALUES (?, ?, ?)",
+                rows);
+    }
+
+    // Keeps the tables the benchmark only appends to from growing across iterations
+    @TearDown(Level.Iteration)
+    public void clearReservations() {
+        jdbcTemplate.update("DELETE FROM inventory");
+        jdbcTemplate.update("DELETE FROM processed_events");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Inventory reserveInventory() {
+        long orderId = orderIds.incrementAndGet();
+        return inventoryService.reserveInventory(orderId, "PROD-" + (orderId % products), 1, "benchmark:" + orderId);
+    }
+}
@@ -0,0 +1,139 @@
+package com.systemdesign.cdc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A decoded binary change event (see {@link BinaryChangeEventSerializer} for the layout). All columns
+ * are decoded eagerly into their Java values: Long, Integer, Float, Double, BigDecimal, Boolean, String,
+ * byte[] or Date.
+ */
+public final class BinaryChangeEvent implements ChangeRow {
+
+    public static final byte MAGIC = 0x00;
+    public static final byte VERSION = 1;
+    // magic, version, fingerprint, operation
+    private static final int HEADER_BYTES = 1 + 1 + Long.BYTES + 1;
+
+    private final String operation;
+    private final EventSchema schema;
+    private final Object[] values;
+
+    private BinaryChangeEvent(String operation, EventSchema schema, Object[] values) {
+        this.operation = operation;
+        this.schema = schema;
+        this.values = values;
+    }
+
+    public static boolean isBinary(byte[] payload) {
+        return payload != null && payload.length >= HEADER_BYTES && payload[0] == MAGIC;
+    }
+
+    public static long fingerprintOf(byte[] payload) {
+        if (payload[1] != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary event version " + payload[1]);
+        }
+        long fingerprint = 0;
+        for (int i = 2; i < 2 + Long.BYTES; i++) {
+            fingerprint = (fingerprint << 8) | (payload[i] & 0xFF);
+        }
+        return fingerprint;
+    }
+
+    public static BinaryChangeEvent decode(byte[] payload, EventSchema schema) {
+        if (fingerprintOf(payload) != schema.fingerprint()) {
+            throw new IllegalArgumentException("Event was not written with schema " + schema.fingerprintHex());
+        }
+        Reader reader = new Reader(payload, HEADER_BYTES);
+        String operation = String.valueOf((char) payload[HEADER_BYTES - 1]);
+
+        List<EventSchema.Column> columns = schema.columns();
+        int nullBytes = (columns.size() + 7) / 8;
+        int nullsStart = reader.position;
+        reader.position += nullBytes;
+
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            if ((payload[nullsStart + (i >> 3)] & (1 << (i & 7))) == 0) {
+                values[i] = reader.readValue(columns.get(i));
+            }
+        }
+        return new BinaryChangeEvent(operation, schema, values);
+    }
+
+    @Override
+    public String operation() {
+        return operation;
+    }
+
+    public EventSchema schema() {
+        return schema;
+    }
+
+    @Override
+    public Object get(String column) {
+        int index = schema.indexOf(column);
+        return index < 0 ? null : values[index];
+    }
+
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private int position;
+
+        private Reader(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        private Object readValue(EventSchema.Column column) {
+            return switch (column.kind()) {
+                case INT -> (int) readVarLong();
+                case LONG -> readVarLong();
+                case FLOAT -> Float.intBitsToFloat((int) readFixed(Integer.BYTES));
+                case DOUBLE -> Double.longBitsToDouble(readFixed(Long.BYTES));
+                case DECIMAL -> new BigDecimal(new BigInteger(readLengthPrefixed()), column.scale());
+                case BOOLEAN -> bytes[position++] != 0;
+                case STRING -> {
+                    int length = (int) readVarLong();
+                    String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+                    position += length;
+                    yield value;
+                }
+                case BYTES -> readLengthPrefixed();
+                case DATE -> new Date(readVarLong());
+            };
+        }
+
+        private byte[] readLengthPrefixed() {
+            int length = (int) readVarLong();
+            byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return value;
+        }
+
+        private long readVarLong() {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        private long readFixed(int length) {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+    }
+}
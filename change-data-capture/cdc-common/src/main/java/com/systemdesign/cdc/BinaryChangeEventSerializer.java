@@ -0,0 +1,115 @@
+package com.systemdesign.cdc;
+
+import org.apache.kafka.connect.data.Struct;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writes a change event in the binary format read by {@link BinaryChangeEvent}: a zero magic byte
+ * (JSON events start with '{'), a format version, the 8-byte schema fingerprint, the operation, a null
+ * bitmap and then the non-null column values in schema order. Integers are zigzag varints, strings and
+ * bytes are length-prefixed, decimals are their unscaled two's complement bytes. Field names are never
+ * written. The buffer is reused, so an instance must only be used by one thread (the Debezium engine thread).
+ */
+public class BinaryChangeEventSerializer {
+
+    private byte[] buffer = new byte[512];
+    private int position;
+
+    public byte[] serialize(String operation, Struct data, EventSchema schema) {
+        position = 0;
+        writeByte(BinaryChangeEvent.MAGIC);
+        writeByte(BinaryChangeEvent.VERSION);
+        writeLong(schema.fingerprint());
+        writeByte((byte) operation.charAt(0));
+
+        List<EventSchema.Column> columns = schema.columns();
+        Object[] values = new Object[columns.size()];
+        byte[] nulls = new byte[(columns.size() + 7) / 8];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = data.get(columns.get(i).name());
+            if (values[i] == null) {
+                nulls[i >> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        writeBytes(nulls, nulls.length);
+
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                writeValue(columns.get(i).kind(), values[i]);
+            }
+        }
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void writeValue(EventSchema.Kind kind, Object value) {
+        switch (kind) {
+            case INT -> writeVarLong(((Number) value).intValue());
+            case LONG -> writeVarLong((Long) value);
+            case FLOAT -> writeInt(Float.floatToIntBits((Float) value));
+            case DOUBLE -> writeLong(Double.doubleToLongBits((Double) value));
+            case DECIMAL -> writeLengthPrefixed(((BigDecimal) value).unscaledValue().toByteArray());
+            case BOOLEAN -> writeByte((byte) ((Boolean) value ? 1 : 0));
+            case STRING -> writeLengthPrefixed(((String) value).getBytes(StandardCharsets.UTF_8));
+            case BYTES -> writeLengthPrefixed(value instanceof ByteBuffer bytes ? toArray(bytes) : (byte[]) value);
+            case DATE -> writeVarLong(((Date) value).getTime());
+        }
+    }
+
+    private void writeLengthPrefixed(byte[] bytes) {
+        writeVarLong(bytes.length);
+        writeBytes(bytes, bytes.length);
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        buffer[position++] = (byte) zigzag;
+    }
+
+    private void writeInt(int value) {
+        ensureCapacity(Integer.BYTES);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeLong(long value) {
+        ensureCapacity(Long.BYTES);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeByte(byte value) {
+        ensureCapacity(1);
+        buffer[position++] = value;
+    }
+
+    private void writeBytes(byte[] bytes, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, 0, buffer, position, length);
+        position += length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(position + extra, buffer.length * 2));
+        }
+    }
+
+    private static byte[] toArray(ByteBuffer bytes) {
+        byte[] array = new byte[bytes.remaining()];
+        bytes.duplicate().get(array);
+        return array;
+    }
+}
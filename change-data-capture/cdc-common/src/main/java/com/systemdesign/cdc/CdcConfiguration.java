@@ -0,0 +1,10 @@
+package com.systemdesign.cdc;
+
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+
+// The relay, schema catalog and flight recorder beans every service imports next to its own
+@Configuration
+@ComponentScan
+public class CdcConfiguration {
+}
@@ -0,0 +1,50 @@
+package com.systemdesign.cdc;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Kafka deserializer from either change event format to a typed record. Topics can carry JSON and
+ * binary events side by side while they migrate, the first byte tells them apart. An event that cannot
+ * be decoded is logged and handed to the listener as null, like the listeners skipped unparseable
+ * payloads before.
+ */
+@Slf4j
+public class ChangeEventDeserializer<T> implements Deserializer<T> {
+
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(log);
+
+    private final EventReader<T> reader;
+    private final SchemaCatalog schemaCatalog;
+    private final JsonFactory jsonFactory;
+
+    public ChangeEventDeserializer(EventReader<T> reader, SchemaCatalog schemaCatalog, JsonFactory jsonFactory) {
+        this.reader = reader;
+        this.schemaCatalog = schemaCatalog;
+        this.jsonFactory = jsonFactory;
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            if (BinaryChangeEvent.isBinary(payload)) {
+                EventSchema schema = schemaCatalog.require(BinaryChangeEvent.fingerprintOf(payload));
+                return reader.fromBinary(BinaryChangeEvent.decode(payload, schema));
+            }
+            try (JsonParser parser = jsonFactory.createParser(payload)) {
+                return reader.fromJson(parser);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            rateLimitedLog.error("Unable to decode change event from {}, skipping it", topic, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.systemdesign.cdc;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a change event as {"operation":..,"data":{..}} JSON bytes straight from the Connect
+ * Struct, without building intermediate maps. Field writers are resolved once per schema and
+ * the generator and its buffer are reused, so an instance must only be used by one thread
+ * (the Debezium engine thread).
+ */
+public class ChangeEventSerializer {
+
+    private static final SerializableString OPERATION = new SerializedString("operation");
+    private static final SerializableString DATA = new SerializedString("data");
+    private static final int MAX_CACHED_SCHEMAS = 64;
+
+    private final ObjectMapper objectMapper;
+    private final ByteSink buffer = new ByteSink(1024);
+    private final Map<Schema, FieldWriter[]> writersBySchema = new IdentityHashMap<>();
+    private JsonGenerator generator;
+
+    public ChangeEventSerializer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public byte[] serialize(String operation, Struct data) {
+        try {
+            JsonGenerator gen = generator();
+            gen.writeStartObject();
+            gen.writeFieldName(OPERATION);
+            gen.writeString(operation);
+            gen.writeFieldName(DATA);
+            if (data == null) {
+                gen.writeNull();
+            } else {
+                writeStruct(gen, data);
+            }
+            gen.writeEndObject();
+            gen.flush();
+            return buffer.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            // The generator may be left mid-object, start over with a fresh one
+            generator = null;
+            throw e instanceof IOException io ? new UncheckedIOException(io) : (RuntimeException) e;
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    private void writeStruct(JsonGenerator gen, Struct struct) throws IOException {
+        gen.writeStartObject();
+        for (FieldWriter writer : writersFor(struct.schema())) {
+            gen.writeFieldName(writer.name);
+            Object value = struct.get(writer.field);
+            if (value == null) {
+                gen.writeNull();
+            } else {
+                writer.write(gen, value);
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    private FieldWriter[] writersFor(Schema schema) {
+        FieldWriter[] writers = writersBySchema.get(schema);
+        if (writers == null) {
+            if (writersBySchema.size() >= MAX_CACHED_SCHEMAS) {
+                writersBySchema.clear();
+            }
+            List<Field> fields = schema.fields();
+            writers = new FieldWriter[fields.size()];
+            for (int i = 0; i < writers.length; i++) {
+                writers[i] = new FieldWriter(fields.get(i), kindOf(fields.get(i).schema()));
+            }
+            writersBySchema.put(schema, writers);
+        }
+        return writers;
+    }
+
+    private static Kind kindOf(Schema schema) {
+        if (Decimal.LOGICAL_NAME.equals(schema.name())) {
+            return Kind.DECIMAL;
+        }
+        if (schema.name() != null && schema.name().startsWith("org.apache.kafka.connect")) {
+            // Connect Date/Time/Timestamp carry java.util.Date values, keep the ObjectMapper rendering
+            return Kind.OBJECT;
+        }
+        return switch (schema.type()) {
+            case INT8, INT16, INT32 -> Kind.INT;
+            case INT64 -> Kind.LONG;
+            case FLOAT32, FLOAT64 -> Kind.DOUBLE;
+            case BOOLEAN -> Kind.BOOLEAN;
+            case STRING -> Kind.STRING;
+            default -> Kind.OBJECT;
+        };
+    }
+
+    private JsonGenerator generator() throws IOException {
+        if (generator == null) {
+            generator = objectMapper.getFactory().createGenerator(buffer);
+            generator.setCodec(objectMapper);
+            generator.setRootValueSeparator(null);
+        }
+        return generator;
+    }
+
+    private enum Kind {INT, LONG, DOUBLE, DECIMAL, BOOLEAN, STRING, OBJECT}
+
+    private static final class FieldWriter {
+
+        private final Field field;
+        private final SerializableString name;
+        private final Kind kind;
+
+        private FieldWriter(Field field, Kind kind) {
+            this.field = field;
+            this.name = new SerializedString(field.name());
+            this.kind = kind;
+        }
+
+        private void write(JsonGenerator gen, Object value) throws IOException {
+            switch (kind) {
+                case INT -> gen.writeNumber(((Number) value).intValue());
+                case LONG -> gen.writeNumber((long) (Long) value);
+                case DOUBLE -> {
+                    if (value instanceof Float f) {
+                        gen.writeNumber(f);
+                    } else {
+                        gen.writeNumber((double) (Double) value);
+                    }
+                }
+                case DECIMAL -> gen.writeNumber((BigDecimal) value);
+                case BOOLEAN -> gen.writeBoolean((Boolean) value);
+                case STRING -> gen.writeString((String) value);
+                default -> gen.writeObject(value);
+            }
+        }
+    }
+
+    private static final class ByteSink extends OutputStream {
+
+        private byte[] bytes;
+        private int count;
+
+        private ByteSink(int initialCapacity) {
+            this.bytes = new byte[initialCapacity];
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, count);
+        }
+
+        private void reset() {
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.systemdesign.cdc;
+
+import java.math.BigDecimal;
+
+/**
+ * Column access to a decoded change event, the same for both wire formats. Getters return null for
+ * null or missing columns.
+ */
+public interface ChangeRow {
+
+    String operation();
+
+    Object get(String column);
+
+    default Long getLong(String column) {
+        Object value = get(column);
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    default Integer getInt(String column) {
+        Object value = get(column);
+        return value == null ? null : ((Number) value).intValue();
+    }
+
+    default String getString(String column) {
+        Object value = get(column);
+        return value == null ? null : value.toString();
+    }
+
+    default BigDecimal getDecimal(String column) {
+        Object value = get(column);
+        return value == null || value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+}
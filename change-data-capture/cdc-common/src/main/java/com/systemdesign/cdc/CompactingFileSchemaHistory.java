@@ -0,0 +1,210 @@
+package com.systemdesign.cdc;
+
+import io.debezium.DebeziumException;
+import io.debezium.config.Configuration;
+import io.debezium.config.Field;
+import io.debezium.document.Array;
+import io.debezium.document.Document;
+import io.debezium.document.Value;
+import io.debezium.relational.history.AbstractFileBasedSchemaHistory;
+import io.debezium.relational.history.HistoryRecord;
+import io.debezium.relational.history.HistoryRecordComparator;
+import io.debezium.relational.history.SchemaHistoryException;
+import io.debezium.relational.history.SchemaHistoryListener;
+import org.apache.kafka.common.config.ConfigDef;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schema history in a local append-only file, one JSON record per line, fsynced on every append.
+ * On start and whenever enough records have been appended, records older than the minimum age are
+ * folded into one record holding the latest definition of every live table (plus the distinct
+ * non-table DDL such as CREATE DATABASE). The folded record takes the position of the newest record it
+ * replaces, so it must already be covered by the stored offsets; the minimum age guarantees that,
+ * since offsets are flushed every few hundred ms.
+ */
+public class CompactingFileSchemaHistory extends AbstractFileBasedSchemaHistory {
+
+    public static final Field FILE_PATH = Field.create("schema.history.internal.file.filename")
+            .withDescription("The file the schema history is stored in")
+            .required();
+    public static final Field COMPACTION_MIN_AGE_MS = Field.create("schema.history.internal.compaction.min.age.ms")
+            .withDescription("Only records older than this are folded by compaction")
+            .withType(ConfigDef.Type.LONG)
+            .withDefault(3_600_000L);
+    public static final Field COMPACTION_THRESHOLD = Field.create("schema.history.internal.compaction.threshold")
+            .withDescription("Number of records appended since the last compaction that triggers the next one")
+            .withType(ConfigDef.Type.INT)
+            .withDefault(100);
+
+    private static final String TYPE = "type";
+    private static final String ID = "id";
+    private static final String PREVIOUS_ID = "previousId";
+
+    private Path path;
+    private long compactionMinAgeMs;
+    private int compactionThreshold;
+    private int sizeAfterCompaction;
+
+    @Override
+    public void configure(Configuration config, HistoryRecordComparator comparator, SchemaHistoryListener listener,
+                          boolean useCatalogBeforeSchema) {
+        if (!config.validateAndRecord(List.of(FILE_PATH, COMPACTION_MIN_AGE_MS, COMPACTION_THRESHOLD), logger::error)) {
+            throw new DebeziumException("Error configuring " + getClass().getSimpleName() + "; check the logs for details");
+        }
+        super.configure(config, comparator, listener, useCatalogBeforeSchema);
+        this.path = Path.of(config.getString(FILE_PATH));
+        this.compactionMinAgeMs = config.getLong(COMPACTION_MIN_AGE_MS);
+        this.compactionThreshold = config.getInteger(COMPACTION_THRESHOLD);
+    }
+
+    @Override
+    protected void doStart() {
+        try {
+            toHistoryRecord(Files.newInputStream(path));
+        } catch (IOException e) {
+            throw new SchemaHistoryException("Unable to read schema history file " + path, e);
+        }
+        compact();
+    }
+
+    @Override
+    protected void doStoreRecord(HistoryRecord record) {
+        records.add(record);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap((documentWriter.write(record.document()) + "\n").getBytes(StandardCharsets.UTF_8)));
+            channel.force(false);
+        } catch (IOException e) {
+            throw new SchemaHistoryException("Unable to append to schema history file " + path, e);
+        }
+        if (records.size() - sizeAfterCompaction >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    // Called with the write lock held (start and store)
+    private void compact() {
+        long cutoff = System.currentTimeMillis() - compactionMinAgeMs;
+        int folded = 0;
+        while (folded < records.size() && records.get(folded).document().getLong(HistoryRecord.Fields.TIMESTAMP, 0) < cutoff) {
+            folded++;
+        }
+        if (folded < 2) {
+            sizeAfterCompaction = records.size();
+            return;
+        }
+
+        Map<String, HistoryRecord> otherDdl = new LinkedHashMap<>();
+        Map<String, Document> tables = new LinkedHashMap<>();
+        for (HistoryRecord record : records.subList(0, folded)) {
+            Document document = record.document();
+            Array changes = document.getArray(HistoryRecord.Fields.TABLE_CHANGES);
+            if (changes == null || changes.isEmpty()) {
+                String key = document.getString(HistoryRecord.Fields.DATABASE_NAME) + "|"
+                        + document.getString(HistoryRecord.Fields.DDL_STATEMENTS);
+                otherDdl.remove(key);
+                otherDdl.put(key, record);
+                continue;
+            }
+            for (Value value : changes.streamValues().toList()) {
+                Document change = value.asDocument();
+                if (change.getString(PREVIOUS_ID) != null) {
+                    tables.remove(change.getString(PREVIOUS_ID));
+                }
+                if ("DROP".equals(change.getString(TYPE))) {
+                    tables.remove(change.getString(ID));
+                } else {
+                    Document created = change.clone();
+                    created.setString(TYPE, "CREATE");
+                    created.remove(PREVIOUS_ID);
+                    tables.put(change.getString(ID), created);
+                }
+            }
+        }
+
+        Document newest = records.get(folded - 1).document();
+        Document snapshot = Document.create();
+        snapshot.setDocument(HistoryRecord.Fields.SOURCE, newest.getDocument(HistoryRecord.Fields.SOURCE).clone());
+        snapshot.setDocument(HistoryRecord.Fields.POSITION, newest.getDocument(HistoryRecord.Fields.POSITION).clone());
+        snapshot.setNumber(HistoryRecord.Fields.TIMESTAMP, newest.getLong(HistoryRecord.Fields.TIMESTAMP, 0));
+        snapshot.set(HistoryRecord.Fields.TABLE_CHANGES, Array.create(new ArrayList<>(tables.values())));
+
+        List<HistoryRecord> compacted = new ArrayList<>(otherDdl.values());
+        if (!tables.isEmpty()) {
+            compacted.add(new HistoryRecord(snapshot));
+        }
+        compacted.addAll(records.subList(folded, records.size()));
+        if (compacted.size() >= records.size()) {
+            sizeAfterCompaction = records.size();
+            return;
+        }
+
+        try {
+            Path tmp = path.resolveSibling(path.getFileName() + ".compacting");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (HistoryRecord record : compacted) {
+                    writer.write(documentWriter.write(record.document()));
+                    writer.newLine();
+                }
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The uncompacted file is still intact, try again after the next batch of records
+            logger.warn("Unable to compact schema history file {}", path, e);
+            sizeAfterCompaction = records.size();
+            return;
+        }
+        logger.info("Compacted schema history {} from {} to {} records", path, records.size(), compacted.size());
+        records = compacted;
+        sizeAfterCompaction = compacted.size();
+    }
+
+    @Override
+    public boolean storageExists() {
+        return Files.exists(path);
+    }
+
+    @Override
+    public boolean exists() {
+        try {
+            return storageExists() && Files.size(path) > 0;
+        } catch (IOException e) {
+            logger.error("Unable to determine if schema history file {} is empty", path, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void initializeStorage() {
+        try {
+            if (path.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+            }
+            if (!Files.exists(path)) {
+                Files.createFile(path);
+            }
+        } catch (IOException e) {
+            throw new SchemaHistoryException("Unable to create schema history file " + path, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "compacting file " + path;
+    }
+}
@@ -0,0 +1,47 @@
+package com.systemdesign.cdc;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.connect.data.Struct;
+
+import java.nio.charset.StandardCharsets;
+
+// Change events the relay cannot convert go to <topic>.DLT as Connect renders the envelope, and records a
+// consumer cannot process to <topic>.<consumer>.DLT as their decoded value renders, each with the error in
+// a header, so their binlog or topic offsets can be committed without losing them
+public final class DeadLetters {
+
+    public static final String SUFFIX = ".DLT";
+    public static final String ERROR_HEADER = "cdc-error";
+
+    private DeadLetters() {
+    }
+
+    public static ProducerRecord<String, byte[]> of(String topic, String key, Struct value, Exception error) {
+        ProducerRecord<String, byte[]> deadLetter = new ProducerRecord<>(topic + SUFFIX, key,
+                String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        String eventId = value == null ? null : EventIds.fromSource(value);
+        if (eventId != null) {
+            deadLetter.headers().add(EventIds.HEADER, EventIds.toHeaderValue(eventId));
+        }
+        deadLetter.headers().add(ERROR_HEADER, String.valueOf(error).getBytes(StandardCharsets.UTF_8));
+        return deadLetter;
+    }
+
+    public static ProducerRecord<String, byte[]> of(ConsumerRecord<?, ?> record, String consumer, Exception error) {
+        ProducerRecord<String, byte[]> deadLetter = new ProducerRecord<>(record.topic() + "." + consumer + SUFFIX,
+                record.key() == null ? null : String.valueOf(record.key()),
+                String.valueOf(record.value()).getBytes(StandardCharsets.UTF_8));
+        Header eventId = record.headers().lastHeader(EventIds.HEADER);
+        if (eventId != null) {
+            deadLetter.headers().add(eventId);
+        }
+        deadLetter.headers().add(ERROR_HEADER, String.valueOf(error).getBytes(StandardCharsets.UTF_8));
+        return deadLetter;
+    }
+
+    public static boolean isDeadLetter(ProducerRecord<?, ?> record) {
+        return record.topic().endsWith(SUFFIX);
+    }
+}
@@ -0,0 +1,39 @@
+package com.systemdesign.cdc;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.connect.data.Struct;
+
+import java.nio.charset.StandardCharsets;
+
+// Unique id of a change event taken from its binlog coordinates, carried in a Kafka header so
+// consumers can recognise redelivered events
+public final class EventIds {
+
+    public static final String HEADER = "cdc-event-id";
+
+    private EventIds() {
+    }
+
+    public static String fromSource(Struct value) {
+        Struct source = value.getStruct("source");
+        if (source == null) {
+            return null;
+        }
+        // Snapshot reads all share the snapshot's binlog position, they have no unique coordinates
+        Object snapshot = source.get("snapshot");
+        if (snapshot != null && !"false".equals(snapshot)) {
+            return null;
+        }
+        return source.get("file") + ":" + source.get("pos") + ":" + source.get("row");
+    }
+
+    public static byte[] toHeaderValue(String eventId) {
+        return eventId.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static String fromHeaders(Headers headers) {
+        Header header = headers.lastHeader(HEADER);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,34 @@
+package com.systemdesign.cdc;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+
+import java.util.List;
+
+// Turns the Debezium record key (the primary key, or message.key.columns) into the Kafka message key
+public final class EventKeys {
+
+    private EventKeys() {
+    }
+
+    public static String fromRecordKey(Object key) {
+        if (key == null) {
+            return null;
+        }
+        if (!(key instanceof Struct struct)) {
+            return String.valueOf(key);
+        }
+        List<Field> fields = struct.schema().fields();
+        if (fields.size() == 1) {
+            return String.valueOf(struct.get(fields.get(0)));
+        }
+        StringBuilder composite = new StringBuilder();
+        for (Field field : fields) {
+            if (composite.length() > 0) {
+                composite.append(':');
+            }
+            composite.append(struct.get(field));
+        }
+        return composite.toString();
+    }
+}
@@ -0,0 +1,112 @@
+package com.systemdesign.cdc;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Maps a change event to a typed record. Built once per event type with the columns the record needs;
+ * JSON events are read with a token parser that only materializes those columns, skips every other
+ * value and stops as soon as all of them have been seen. Binary events are mapped from their decoded row.
+ */
+public final class EventReader<T> {
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final Function<ChangeRow, T> mapper;
+
+    private EventReader(Function<ChangeRow, T> mapper, String... columns) {
+        this.mapper = mapper;
+        for (String column : columns) {
+            slots.put(column, slots.size());
+        }
+    }
+
+    public static <T> EventReader<T> of(Function<ChangeRow, T> mapper, String... columns) {
+        return new EventReader<>(mapper, columns);
+    }
+
+    public T fromBinary(BinaryChangeEvent event) {
+        return mapper.apply(event);
+    }
+
+    public T fromJson(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Change event is not a JSON object");
+        }
+        String operation = null;
+        Object[] values = new Object[slots.size()];
+        boolean dataRead = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("operation".equals(name)) {
+                operation = parser.getValueAsString();
+            } else if ("data".equals(name) && token == JsonToken.START_OBJECT) {
+                // The relay writes the operation first, so normally the rest of the event is never parsed
+                readData(parser, values, operation != null);
+                dataRead = true;
+            } else {
+                parser.skipChildren();
+            }
+            if (operation != null && dataRead) {
+                break;
+            }
+        }
+        return mapper.apply(new JsonRow(operation, values));
+    }
+
+    // Reads to the end of the data object, or returns as soon as every column was found if allowed
+    private void readData(JsonParser parser, Object[] values, boolean stopWhenComplete) throws IOException {
+        int found = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Integer slot = slots.get(parser.currentName());
+            JsonToken token = parser.nextToken();
+            if (slot == null) {
+                parser.skipChildren();
+                continue;
+            }
+            values[slot] = switch (token) {
+                case VALUE_STRING -> parser.getText();
+                case VALUE_NUMBER_INT -> parser.getNumberValue();
+                case VALUE_NUMBER_FLOAT -> parser.getDecimalValue();
+                case VALUE_TRUE -> Boolean.TRUE;
+                case VALUE_FALSE -> Boolean.FALSE;
+                default -> {
+                    parser.skipChildren();
+                    yield null;
+                }
+            };
+            if (++found == values.length && stopWhenComplete) {
+                return;
+            }
+        }
+    }
+
+    private final class JsonRow implements ChangeRow {
+
+        private final String operation;
+        private final Object[] values;
+
+        private JsonRow(String operation, Object[] values) {
+            this.operation = operation;
+            this.values = values;
+        }
+
+        @Override
+        public String operation() {
+            return operation;
+        }
+
+        @Override
+        public Object get(String column) {
+            Integer slot = slots.get(column);
+            return slot == null ? null : values[slot];
+        }
+    }
+}
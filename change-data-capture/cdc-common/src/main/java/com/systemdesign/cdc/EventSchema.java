@@ -0,0 +1,137 @@
+package com.systemdesign.cdc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column layout of a binary change event. The fingerprint is derived from the columns alone, so every
+ * relay computes the same id for the same table shape without coordinating.
+ */
+public final class EventSchema {
+
+    public enum Kind {INT, LONG, FLOAT, DOUBLE, DECIMAL, BOOLEAN, STRING, BYTES, DATE}
+
+    public record Column(String name, Kind kind, boolean optional, int scale) {
+    }
+
+    private final long fingerprint;
+    private final List<Column> columns;
+    private final Map<String, Integer> indexByName;
+
+    private EventSchema(List<Column> columns) {
+        this.columns = List.copyOf(columns);
+        this.indexByName = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            indexByName.put(columns.get(i).name(), i);
+        }
+        this.fingerprint = fingerprint(columns);
+    }
+
+    /**
+     * Flat row schemas only; nested structs, arrays and maps are rejected with IllegalArgumentException.
+     */
+    public static EventSchema fromConnect(Schema schema) {
+        List<Column> columns = new ArrayList<>(schema.fields().size());
+        for (Field field : schema.fields()) {
+            Schema fieldSchema = field.schema();
+            Kind kind = kindOf(fieldSchema);
+            int scale = kind == Kind.DECIMAL ? Integer.parseInt(fieldSchema.parameters().get(Decimal.SCALE_FIELD)) : 0;
+            columns.add(new Column(field.name(), kind, fieldSchema.isOptional(), scale));
+        }
+        return new EventSchema(columns);
+    }
+
+    public static EventSchema fromJson(JsonNode json) {
+        List<Column> columns = new ArrayList<>();
+        for (JsonNode column : json.get("columns")) {
+            columns.add(new Column(column.get("name").asText(), Kind.valueOf(column.get("kind").asText()),
+                    column.get("optional").asBoolean(), column.path("scale").asInt()));
+        }
+        EventSchema schema = new EventSchema(columns);
+        if (json.has("fingerprint") && Long.parseUnsignedLong(json.get("fingerprint").asText(), 16) != schema.fingerprint) {
+            throw new IllegalArgumentException("Schema does not match its fingerprint " + json.get("fingerprint").asText());
+        }
+        return schema;
+    }
+
+    public ObjectNode toJson(ObjectMapper objectMapper) {
+        ObjectNode json = objectMapper.createObjectNode();
+        json.put("fingerprint", fingerprintHex());
+        ArrayNode columnsJson = json.putArray("columns");
+        for (Column column : columns) {
+            ObjectNode node = columnsJson.addObject()
+                    .put("name", column.name())
+                    .put("kind", column.kind().name())
+                    .put("optional", column.optional());
+            if (column.kind() == Kind.DECIMAL) {
+                node.put("scale", column.scale());
+            }
+        }
+        return json;
+    }
+
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    public String fingerprintHex() {
+        return Long.toHexString(fingerprint);
+    }
+
+    public List<Column> columns() {
+        return columns;
+    }
+
+    // -1 if the schema has no such column
+    public int indexOf(String name) {
+        return indexByName.getOrDefault(name, -1);
+    }
+
+    private static Kind kindOf(Schema schema) {
+        if (Decimal.LOGICAL_NAME.equals(schema.name())) {
+            return Kind.DECIMAL;
+        }
+        if (schema.name() != null && schema.name().startsWith("org.apache.kafka.connect")) {
+            // Connect Date/Time/Timestamp carry java.util.Date values
+            return Kind.DATE;
+        }
+        return switch (schema.type()) {
+            case INT8, INT16, INT32 -> Kind.INT;
+            case INT64 -> Kind.LONG;
+            case FLOAT32 -> Kind.FLOAT;
+            case FLOAT64 -> Kind.DOUBLE;
+            case BOOLEAN -> Kind.BOOLEAN;
+            case STRING -> Kind.STRING;
+            case BYTES -> Kind.BYTES;
+            default -> throw new IllegalArgumentException("No binary encoding for " + schema.type() + " columns");
+        };
+    }
+
+    private static long fingerprint(List<Column> columns) {
+        StringBuilder canonical = new StringBuilder();
+        for (Column column : columns) {
+            canonical.append(column.name()).append(':').append(column.kind()).append(':')
+                    .append(column.optional() ? '?' : '!').append(':').append(column.scale()).append(';');
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.systemdesign.cdc;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The last events through each stage of the pipeline, kept in memory instead of a log line per event.
+ * Each stage is a fixed ring of slots: recording claims the next slot with one atomic increment and
+ * overwrites what was there, so writers never lock or wait and memory stays bounded. Readers walk a
+ * ring newest first and skip slots that were overwritten while they read.
+ */
+@Component
+public class FlightRecorder {
+
+    public enum Stage {
+        // Change events as the relay takes them from the engine
+        RELAY_IN,
+        // Relayed records as Kafka acknowledges or rejects them
+        KAFKA_OUT,
+        // Consumed records once a listener is done with them
+        PROCESSED
+    }
+
+    // Partition and offset are -1 where the stage has none; detail is the operation or the outcome
+    public record Entry(long sequence, long timestamp, Stage stage, String topic, int partition, long offset,
+                        String key, String eventId, String detail) {
+    }
+
+    private final Ring[] rings = new Ring[Stage.values().length];
+
+    public FlightRecorder(@Value("${flight-recorder.capacity}") int capacity) {
+        // A power of two, so the slot is the sequence masked
+        int slots = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        for (int i = 0; i < rings.length; i++) {
+            rings[i] = new Ring(slots);
+        }
+    }
+
+    private static final class Ring {
+
+        private final AtomicReferenceArray<Entry> slots;
+        private final AtomicLong next = new AtomicLong();
+        private final int mask;
+
+        private Ring(int size) {
+            this.slots = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+    }
+
+    public void record(Stage stage, String topic, int partition, long offset, String key, String eventId,
+                       String detail) {
+        Ring ring = rings[stage.ordinal()];
+        long sequence = ring.next.getAndIncrement();
+        ring.slots.set((int) (sequence & ring.mask), new Entry(sequence, System.currentTimeMillis(), stage, topic,
+                partition, offset, key, eventId, detail));
+    }
+
+    public void record(Stage stage, ConsumerRecord<?, ?> record, String detail) {
+        record(stage, record.topic(), record.partition(), record.offset(),
+                record.key() == null ? null : String.valueOf(record.key()),
+                EventIds.fromHeaders(record.headers()), detail);
+    }
+
+    /**
+     * Newest first, at most {@code limit} entries of the stage, or of every stage when it is null. Topic
+     * and key filter on equality when given.
+     */
+    public List<Entry> find(Stage stage, String topic, String key, int limit) {
+        List<Entry> entries = new ArrayList<>();
+        for (Stage candidate : Stage.values()) {
+            if (stage == null || stage == candidate) {
+                collect(rings[candidate.ordinal()], topic, key, limit, entries);
+            }
+        }
+        entries.sort(Comparator.comparingLong(Entry::timestamp).reversed());
+        return entries.size() > limit ? List.copyOf(entries.subList(0, limit)) : entries;
+    }
+
+    private static void collect(Ring ring, String topic, String key, int limit, List<Entry> entries) {
+        long newest = ring.next.get() - 1;
+        long oldest = Math.max(0, newest - ring.mask);
+        int found = 0;
+        for (long sequence = newest; sequence >= oldest && found < limit; sequence--) {
+            Entry entry = ring.slots.get((int) (sequence & ring.mask));
+            // Empty while its writer is between claiming and filling the slot, newer once lapped
+            if (entry == null || entry.sequence() != sequence) {
+                continue;
+            }
+            if ((topic == null || topic.equals(entry.topic())) && (key == null || key.equals(entry.key()))) {
+                entries.add(entry);
+                found++;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.systemdesign.cdc;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.runtime.WorkerConfig;
+import org.apache.kafka.connect.storage.MemoryOffsetBackingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Debezium offset store in a table of the service's own MySQL schema. Each flush upserts the whole
+ * offsets map as one row per connector in a single autocommit statement, so a flush is one small
+ * InnoDB commit and a crash leaves either the previous or the new offsets.
+ */
+public class JdbcOffsetBackingStore extends MemoryOffsetBackingStore {
+
+    public static final String URL_CONFIG = "offset.storage.jdbc.url";
+    public static final String USER_CONFIG = "offset.storage.jdbc.user";
+    public static final String PASSWORD_CONFIG = "offset.storage.jdbc.password";
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcOffsetBackingStore.class);
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS cdc_offsets ("
+            + "connector VARCHAR(255) NOT NULL PRIMARY KEY, offsets BLOB NOT NULL, updated_at TIMESTAMP(3) NOT NULL)";
+    private static final String UPSERT = "INSERT INTO cdc_offsets (connector, offsets, updated_at) VALUES (?, ?, NOW(3)) "
+            + "ON DUPLICATE KEY UPDATE offsets = VALUES(offsets), updated_at = VALUES(updated_at)";
+
+    private String url;
+    private String user;
+    private String password;
+    private String connectorName;
+    private Connection connection;
+
+    @Override
+    public void configure(WorkerConfig config) {
+        super.configure(config);
+        Map<String, String> originals = config.originalsStrings();
+        this.url = required(originals, URL_CONFIG);
+        this.user = originals.get(USER_CONFIG);
+        this.password = originals.get(PASSWORD_CONFIG);
+        this.connectorName = required(originals, "name");
+    }
+
+    @Override
+    public synchronized void start() {
+        super.start();
+        log.info("Starting JdbcOffsetBackingStore for connector {}", connectorName);
+        try (Statement statement = connection().createStatement()) {
+            statement.execute(CREATE_TABLE);
+            try (PreparedStatement select = connection().prepareStatement(
+                    "SELECT offsets FROM cdc_offsets WHERE connector = ?")) {
+                select.setString(1, connectorName);
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) {
+                        data = OffsetCodec.decode(ByteBuffer.wrap(rs.getBytes(1)));
+                        log.info("Loaded {} offsets for connector {}", data.size(), connectorName);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new ConnectException("Unable to load offsets for connector " + connectorName, e);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        super.stop();
+        closeConnection();
+        log.info("Stopped JdbcOffsetBackingStore");
+    }
+
+    // Runs on the store's single executor thread, once per offset flush
+    @Override
+    protected void save() {
+        byte[] payload = OffsetCodec.encode(data);
+        try (PreparedStatement upsert = connection().prepareStatement(UPSERT)) {
+            upsert.setString(1, connectorName);
+            upsert.setBytes(2, payload);
+            upsert.executeUpdate();
+        } catch (SQLException e) {
+            // Reconnect on the next flush; the engine keeps the offsets and retries them
+            closeConnection();
+            throw new ConnectException("Unable to store offsets for connector " + connectorName, e);
+        }
+    }
+
+    @Override
+    public Set<Map<String, Object>> connectorPartitions(String connectorName) {
+        return null;
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            connection = DriverManager.getConnection(url, user, password);
+            connection.setAutoCommit(true);
+        }
+        return connection;
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.debug("Error closing offset store connection", e);
+            }
+            connection = null;
+        }
+    }
+
+    private static String required(Map<String, String> config, String key) {
+        String value = config.get(key);
+        if (value == null || value.isBlank()) {
+            throw new ConnectException("Missing required offset store setting " + key);
+        }
+        return value;
+    }
+}
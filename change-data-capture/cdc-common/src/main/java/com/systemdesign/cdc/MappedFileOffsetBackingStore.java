@@ -0,0 +1,193 @@
+package com.systemdesign.cdc;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.runtime.WorkerConfig;
+import org.apache.kafka.connect.runtime.standalone.StandaloneConfig;
+import org.apache.kafka.connect.storage.MemoryOffsetBackingStore;
+import org.apache.kafka.connect.util.SafeObjectInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Debezium offset store on a memory-mapped file with two slots. Each flush writes the whole offsets map
+ * into the slot not holding the latest copy, stamped with a sequence number and a CRC32, and forces that
+ * slot to disk. A write torn by a crash fails its checksum on load and the other slot is used, so the
+ * store always restarts from the last completed flush. Cheap enough to flush every few hundred ms.
+ */
+public class MappedFileOffsetBackingStore extends MemoryOffsetBackingStore {
+
+    public static final String SLOT_BYTES_CONFIG = "offset.storage.mapped.slot.bytes";
+    public static final String LEGACY_FILE_CONFIG = "offset.storage.legacy.file.filename";
+
+    private static final Logger log = LoggerFactory.getLogger(MappedFileOffsetBackingStore.class);
+    private static final int DEFAULT_SLOT_BYTES = 64 * 1024;
+    private static final int MAGIC = 0x4F464653;
+    // magic, sequence, payload length, crc
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private Path file;
+    private Path legacyFile;
+    private int slotBytes;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long sequence;
+
+    @Override
+    public void configure(WorkerConfig config) {
+        super.configure(config);
+        this.file = Path.of(config.getString(StandaloneConfig.OFFSET_STORAGE_FILE_FILENAME_CONFIG));
+        Map<String, String> originals = config.originalsStrings();
+        this.slotBytes = Integer.parseInt(originals.getOrDefault(SLOT_BYTES_CONFIG, String.valueOf(DEFAULT_SLOT_BYTES)));
+        String legacy = originals.get(LEGACY_FILE_CONFIG);
+        this.legacyFile = legacy == null || legacy.isBlank() ? null : Path.of(legacy);
+    }
+
+    @Override
+    public synchronized void start() {
+        super.start();
+        log.info("Starting MappedFileOffsetBackingStore with file {}", file);
+        try {
+            boolean exists = Files.exists(file) && Files.size(file) > 0;
+            if (file.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // The slot size is fixed when the file is created
+            if (exists && channel.size() >= 2L * HEADER_BYTES) {
+                slotBytes = (int) (channel.size() / 2);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, 2L * slotBytes);
+
+            if (exists) {
+                load();
+            } else if (legacyFile != null && Files.exists(legacyFile)) {
+                importLegacyFile();
+            }
+        } catch (IOException e) {
+            throw new ConnectException("Unable to open offset file " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        super.stop();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Error closing offset file {}", file, e);
+        }
+        mapped = null;
+        log.info("Stopped MappedFileOffsetBackingStore");
+    }
+
+    // Runs on the store's single executor thread, once per offset flush
+    @Override
+    protected void save() {
+        byte[] payload = OffsetCodec.encode(data);
+        if (payload.length > slotBytes - HEADER_BYTES) {
+            throw new ConnectException("Offsets need " + payload.length + " bytes, more than the "
+                    + (slotBytes - HEADER_BYTES) + " an offset slot holds; raise " + SLOT_BYTES_CONFIG);
+        }
+
+        long next = sequence + 1;
+        int slotStart = (int) (next % 2) * slotBytes;
+        ByteBuffer slot = mapped.duplicate();
+        slot.position(slotStart);
+        slot.putInt(MAGIC);
+        slot.putLong(next);
+        slot.putInt(payload.length);
+        slot.putInt(checksum(next, payload, payload.length));
+        slot.put(payload);
+        mapped.force(slotStart, HEADER_BYTES + payload.length);
+        sequence = next;
+    }
+
+    @Override
+    public Set<Map<String, Object>> connectorPartitions(String connectorName) {
+        return null;
+    }
+
+    private void load() {
+        int latestSlot = -1;
+        long latestSequence = -1;
+        for (int slot = 0; slot < 2; slot++) {
+            long slotSequence = validSequence(slot);
+            if (slotSequence > latestSequence) {
+                latestSequence = slotSequence;
+                latestSlot = slot;
+            }
+        }
+        if (latestSlot < 0) {
+            log.warn("No valid offsets in {}, starting without stored offsets", file);
+            return;
+        }
+
+        ByteBuffer slot = mapped.duplicate();
+        slot.position(latestSlot * slotBytes + Integer.BYTES + Long.BYTES);
+        int length = slot.getInt();
+        slot.position(latestSlot * slotBytes + HEADER_BYTES);
+        slot.limit(slot.position() + length);
+        data = OffsetCodec.decode(slot.slice());
+        sequence = latestSequence;
+        log.info("Loaded {} offsets from slot {} of {} (sequence {})", data.size(), latestSlot, file, sequence);
+    }
+
+    // Sequence of the slot if its header and checksum are intact, -1 otherwise
+    private long validSequence(int slot) {
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.position(slot * slotBytes);
+        if (buffer.getInt() != MAGIC) {
+            return -1;
+        }
+        long slotSequence = buffer.getLong();
+        int length = buffer.getInt();
+        int crc = buffer.getInt();
+        if (length < 0 || length > slotBytes - HEADER_BYTES) {
+            return -1;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        return checksum(slotSequence, payload, length) == crc ? slotSequence : -1;
+    }
+
+    private static int checksum(long sequence, byte[] payload, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(sequence).putInt(length).flip());
+        crc.update(payload, 0, length);
+        return (int) crc.getValue();
+    }
+
+    // One-time migration from the FileOffsetBackingStore format, so switching stores does not lose the
+    // binlog position
+    @SuppressWarnings("unchecked")
+    private void importLegacyFile() throws IOException {
+        try (InputStream in = Files.newInputStream(legacyFile);
+             SafeObjectInputStream objects = new SafeObjectInputStream(in)) {
+            Map<byte[], byte[]> raw = (Map<byte[], byte[]>) objects.readObject();
+            Map<ByteBuffer, ByteBuffer> imported = new HashMap<>();
+            raw.forEach((key, value) -> imported.put(
+                    key == null ? null : ByteBuffer.wrap(key),
+                    value == null ? null : ByteBuffer.wrap(value)));
+            data = imported;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new ConnectException("Unreadable legacy offset file " + legacyFile, e);
+        }
+        save();
+        log.info("Imported {} offsets from legacy offset file {}", data.size(), legacyFile);
+    }
+}
@@ -0,0 +1,58 @@
+package com.systemdesign.cdc;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+// Offsets map as bytes: the entry count, then each key and value prefixed by its length (-1 for null)
+final class OffsetCodec {
+
+    private OffsetCodec() {
+    }
+
+    static byte[] encode(Map<ByteBuffer, ByteBuffer> offsets) {
+        int size = Integer.BYTES;
+        for (Map.Entry<ByteBuffer, ByteBuffer> entry : offsets.entrySet()) {
+            size += 2 * Integer.BYTES + lengthOf(entry.getKey()) + lengthOf(entry.getValue());
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(offsets.size());
+        for (Map.Entry<ByteBuffer, ByteBuffer> entry : offsets.entrySet()) {
+            put(out, entry.getKey());
+            put(out, entry.getValue());
+        }
+        return out.array();
+    }
+
+    static Map<ByteBuffer, ByteBuffer> decode(ByteBuffer in) {
+        int count = in.getInt();
+        Map<ByteBuffer, ByteBuffer> offsets = new HashMap<>(Math.max(16, count * 2));
+        for (int i = 0; i < count; i++) {
+            offsets.put(get(in), get(in));
+        }
+        return offsets;
+    }
+
+    private static int lengthOf(ByteBuffer buffer) {
+        return buffer == null ? 0 : buffer.remaining();
+    }
+
+    private static void put(ByteBuffer out, ByteBuffer buffer) {
+        if (buffer == null) {
+            out.putInt(-1);
+        } else {
+            out.putInt(buffer.remaining());
+            out.put(buffer.duplicate());
+        }
+    }
+
+    private static ByteBuffer get(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+}
@@ -0,0 +1,84 @@
+package com.systemdesign.cdc;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warnings and errors that can repeat once per event. Each message logs at most a few times a minute;
+ * the rest are only counted, and the next line that gets through says how many were dropped. A poison
+ * event or a broker outage then costs a handful of lines instead of one per event.
+ */
+public final class RateLimitedLog {
+
+    private static final int PERMITS = 5;
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long DROPPED = -1;
+
+    private final Logger log;
+    // Keyed by message template, so different arguments still count as the same message
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    public RateLimitedLog(Logger log) {
+        this.log = log;
+    }
+
+    private static final class Window {
+
+        private long start;
+        private int logged;
+        private long suppressed;
+    }
+
+    public void warn(String message, Object... arguments) {
+        long suppressed = admit(message);
+        if (suppressed == 0) {
+            log.warn(message, arguments);
+        } else if (suppressed != DROPPED) {
+            log.warn(message + " ({} similar suppressed)", withSuppressed(arguments, suppressed));
+        }
+    }
+
+    public void error(String message, Object... arguments) {
+        long suppressed = admit(message);
+        if (suppressed == 0) {
+            log.error(message, arguments);
+        } else if (suppressed != DROPPED) {
+            log.error(message + " ({} similar suppressed)", withSuppressed(arguments, suppressed));
+        }
+    }
+
+    // How many were suppressed since this message last logged, or DROPPED when it must not log now
+    private long admit(String message) {
+        Window window = windows.computeIfAbsent(message, ignored -> new Window());
+        long now = System.nanoTime();
+        synchronized (window) {
+            if (window.logged == 0 || now - window.start >= WINDOW_NANOS) {
+                window.start = now;
+                window.logged = 0;
+            }
+            if (window.logged == PERMITS) {
+                window.suppressed++;
+                return DROPPED;
+            }
+            window.logged++;
+            long suppressed = window.suppressed;
+            window.suppressed = 0;
+            return suppressed;
+        }
+    }
+
+    // The count goes before a trailing exception, which SLF4J only treats as one in last place
+    private static Object[] withSuppressed(Object[] arguments, long suppressed) {
+        int at = arguments.length > 0 && arguments[arguments.length - 1] instanceof Throwable
+                ? arguments.length - 1
+                : arguments.length;
+        Object[] extended = new Object[arguments.length + 1];
+        System.arraycopy(arguments, 0, extended, 0, at);
+        extended[at] = suppressed;
+        System.arraycopy(arguments, at, extended, at + 1, arguments.length - at);
+        return extended;
+    }
+}
@@ -0,0 +1,30 @@
+package com.systemdesign.cdc;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// The "relay" health component: DOWN while the Debezium engine is stopped and waiting to be restarted,
+// so a relay that is not capturing changes shows in /actuator/health
+@Component
+public class RelayHealthIndicator implements HealthIndicator {
+
+    private volatile Health health = Health.unknown().withDetail("engine", "not started").build();
+
+    public void running() {
+        health = Health.up().withDetail("engine", "running").build();
+    }
+
+    public void stopped(String message, Throwable error, int restarts, long restartInMs) {
+        Health.Builder builder = Health.down().withDetail("engine", "stopped")
+                .withDetail("reason", String.valueOf(message))
+                .withDetail("restarts", restarts)
+                .withDetail("restartInMs", restartInMs);
+        health = (error == null ? builder : builder.withException(error)).build();
+    }
+
+    @Override
+    public Health health() {
+        return health;
+    }
+}
@@ -0,0 +1,95 @@
+package com.systemdesign.cdc;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.connect.data.Struct;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relay stage metrics: binlog commit to relay lag and change events per table, conversion time per
+ * topic and format, Kafka send latency per topic with the outcome, time spent waiting on the in-flight
+ * caps and resends per topic. Meters are looked up once per tag combination and cached, the relay
+ * records on every event.
+ */
+@Component
+public class RelayMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> lagByTable = new ConcurrentHashMap<>();
+    private final Map<String, Counter> eventsByTableAndOperation = new ConcurrentHashMap<>();
+    private final Map<String, Timer> conversionByTopicAndFormat = new ConcurrentHashMap<>();
+    private final Map<String, Timer> sendByTopicAndOutcome = new ConcurrentHashMap<>();
+    private final Map<String, Counter> retriesByTopic = new ConcurrentHashMap<>();
+    private final Timer backpressure;
+
+    public RelayMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.backpressure = Timer.builder("cdc.relay.backpressure")
+                .description("Time a send waited for the relay's in-flight record and byte caps")
+                .register(meterRegistry);
+    }
+
+    // Called once per change event as the relay receives it
+    public void recordEvent(Struct value) {
+        if (value.schema().field("op") == null) {
+            return;
+        }
+        Struct source = value.getStruct("source");
+        String table = source == null ? "unknown" : source.getString("table");
+        String operation = value.getString("op");
+        eventsByTableAndOperation.computeIfAbsent(table + ":" + operation, key -> Counter.builder("cdc.relay.events")
+                .description("Change events received from the binlog")
+                .tag("table", table)
+                .tag("operation", operation)
+                .register(meterRegistry)).increment();
+
+        // Snapshot reads carry the snapshot time, not a commit time
+        Long committedAt = source == null ? null : source.getInt64("ts_ms");
+        if (committedAt != null && !"r".equals(operation)) {
+            long lagMs = Math.max(0, System.currentTimeMillis() - committedAt);
+            lagByTable.computeIfAbsent(table, key -> Timer.builder("cdc.relay.lag")
+                    .description("Time from the binlog commit to the relay receiving the change")
+                    .tag("table", table)
+                    .register(meterRegistry)).record(lagMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void recordConversion(String topic, byte[] message, long startNanos) {
+        String format = BinaryChangeEvent.isBinary(message) ? "binary" : "json";
+        conversionByTopicAndFormat.computeIfAbsent(topic + ":" + format, key -> Timer.builder("cdc.relay.conversion")
+                .description("Time to convert a change event into its Kafka message")
+                .tag("topic", topic)
+                .tag("format", format)
+                .register(meterRegistry)).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Times the send from the call to the broker's ack; errors are the count with outcome=error
+    public <T> CompletableFuture<T> timeSend(String topic, long startNanos, CompletableFuture<T> ack) {
+        return ack.whenComplete((result, error) -> {
+            String outcome = error == null ? "success" : "error";
+            sendByTopicAndOutcome.computeIfAbsent(topic + ":" + outcome, key -> Timer.builder("cdc.relay.send")
+                    .description("Kafka send latency of relayed events, from send to acknowledgement")
+                    .tag("topic", topic)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)).record(Duration.ofNanos(System.nanoTime() - startNanos));
+        });
+    }
+
+    public void recordBackpressure(long startNanos) {
+        backpressure.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRetry(String topic) {
+        retriesByTopic.computeIfAbsent(topic, key -> Counter.builder("cdc.relay.retries")
+                .description("Relayed events sent again after the producer gave up on them")
+                .tag("topic", topic)
+                .register(meterRegistry)).increment();
+    }
+}
@@ -0,0 +1,220 @@
+package com.systemdesign.cdc;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Backpressure-aware sends for the relay. Every send holds a record permit and a byte permit until it
+ * and every send before it are acknowledged. When either cap is reached the engine thread blocks in
+ * {@link #send}, so the engine stops polling and the binlog reader waits behind its full queue.
+ *
+ * <p>A send the producer gives up on is sent again, and so is every send after it, in the original
+ * order, so a newer event for the same key always lands last; consumers drop the duplicates by event
+ * id. Once its retries are used up the delivery fails, and the relay stops without marking it.
+ * Producer callbacks are handled on the retry thread, never on the producer's I/O thread, and each
+ * outcome goes to the flight recorder. A lock rather than a monitor guards the window, since a send
+ * under it can block on producer metadata and must not pin a virtual thread's carrier.
+ */
+@Slf4j
+@Component
+public class RelayPublisher {
+
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(log);
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final RelayMetrics relayMetrics;
+    private final FlightRecorder flightRecorder;
+    private final Semaphore records;
+    private final Semaphore bytes;
+    private final int maxBytes;
+    private final int retries;
+    private final long retryBackoffMs;
+    private final ScheduledExecutorService retrier;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Sends not settled together with everything before them, in send order
+    private final Deque<Delivery> window = new ArrayDeque<>();
+    private long sequence;
+    // Earliest failed send while a retry is scheduled; sends queue behind it until then
+    private Delivery retryFrom;
+
+    public RelayPublisher(KafkaTemplate<String, byte[]> kafkaTemplate,
+                          RelayMetrics relayMetrics,
+                          FlightRecorder flightRecorder,
+                          @Value("${debezium.relay.max.in.flight.records}") int maxInFlight,
+                          @Value("${debezium.relay.max.in.flight.bytes}") int maxInFlightBytes,
+                          @Value("${debezium.relay.send.retries}") int retries,
+                          @Value("${debezium.relay.send.retry.backoff.ms}") long retryBackoffMs,
+                          Environment environment) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.relayMetrics = relayMetrics;
+        this.flightRecorder = flightRecorder;
+        this.records = new Semaphore(maxInFlight);
+        this.bytes = new Semaphore(maxInFlightBytes);
+        this.maxBytes = maxInFlightBytes;
+        this.retries = retries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.retrier = Executors.newSingleThreadScheduledExecutor(ThreadFactories.named(environment, "relay-acks"));
+    }
+
+    private static final class Delivery {
+
+        private final ProducerRecord<String, byte[]> record;
+        private final int size;
+        private final CompletableFuture<Void> delivered = new CompletableFuture<>();
+        private long sequence;
+        private int attempts;
+        private boolean settled;
+
+        private Delivery(ProducerRecord<String, byte[]> record, int size) {
+            this.record = record;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Sends the record once the in-flight caps allow it. The future completes when Kafka has the
+     * record, possibly after retries, or fails once the retries are used up.
+     */
+    public CompletableFuture<Void> send(ProducerRecord<String, byte[]> record) throws InterruptedException {
+        // A record larger than the byte cap still goes out, alone
+        int size = Math.min(sizeOf(record), maxBytes);
+        long startNanos = System.nanoTime();
+        records.acquire();
+        try {
+            bytes.acquire(size);
+        } catch (InterruptedException e) {
+            records.release();
+            throw e;
+        }
+        relayMetrics.recordBackpressure(startNanos);
+
+        Delivery delivery = new Delivery(record, size);
+        lock.lock();
+        try {
+            delivery.sequence = sequence++;
+            window.addLast(delivery);
+            if (retryFrom == null) {
+                attempt(delivery);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return delivery.delivered;
+    }
+
+    private void attempt(Delivery delivery) {
+        int attempt = ++delivery.attempts;
+        long startNanos = System.nanoTime();
+        CompletableFuture<?> ack;
+        try {
+            ack = kafkaTemplate.send(delivery.record);
+        } catch (RuntimeException e) {
+            ack = CompletableFuture.failedFuture(e);
+        }
+        relayMetrics.timeSend(delivery.record.topic(), startNanos, ack)
+                .whenCompleteAsync((result, error) -> onAck(delivery, attempt, result, error), retrier);
+    }
+
+    private void onAck(Delivery delivery, int attempt, Object result, Throwable error) {
+        lock.lock();
+        try {
+            settle(delivery, attempt, result, error);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void settle(Delivery delivery, int attempt, Object result, Throwable error) {
+        if (attempt != delivery.attempts) {
+            // Superseded by a resend
+            return;
+        }
+        record(delivery, result, error);
+        if (error == null || delivery.attempts > retries) {
+            if (error != null) {
+                rateLimitedLog.error("Giving up on {} event after {} attempts", delivery.record.topic(),
+                        delivery.attempts, error);
+                delivery.delivered.completeExceptionally(error);
+            } else {
+                delivery.delivered.complete(null);
+            }
+            delivery.settled = true;
+            while (!window.isEmpty() && window.peekFirst().settled) {
+                Delivery head = window.removeFirst();
+                bytes.release(head.size);
+                records.release();
+            }
+            return;
+        }
+        rateLimitedLog.warn("Send of {} event failed (attempt {} of {}), resending it and the sends after it",
+                delivery.record.topic(), delivery.attempts, retries + 1, error);
+        relayMetrics.recordRetry(delivery.record.topic());
+        if (retryFrom == null) {
+            retrier.schedule(this::resend, retryBackoffMs, TimeUnit.MILLISECONDS);
+            retryFrom = delivery;
+        } else if (delivery.sequence < retryFrom.sequence) {
+            retryFrom = delivery;
+        }
+    }
+
+    private void resend() {
+        lock.lock();
+        try {
+            boolean resending = false;
+            for (Delivery delivery : window) {
+                resending |= delivery == retryFrom;
+                if (resending) {
+                    attempt(delivery);
+                }
+            }
+            retryFrom = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(Delivery delivery, Object result, Throwable error) {
+        ProducerRecord<String, byte[]> record = delivery.record;
+        String eventId = EventIds.fromHeaders(record.headers());
+        if (result instanceof SendResult<?, ?> sendResult) {
+            RecordMetadata metadata = sendResult.getRecordMetadata();
+            flightRecorder.record(FlightRecorder.Stage.KAFKA_OUT, record.topic(), metadata.partition(),
+                    metadata.offset(), record.key(), eventId,
+                    delivery.attempts == 1 ? "acked" : "acked on attempt " + delivery.attempts);
+        } else {
+            flightRecorder.record(FlightRecorder.Stage.KAFKA_OUT, record.topic(), -1, -1, record.key(), eventId,
+                    "attempt " + delivery.attempts + " failed: " + error);
+        }
+    }
+
+    private static int sizeOf(ProducerRecord<String, byte[]> record) {
+        int size = record.value() == null ? 0 : record.value().length;
+        size += record.key() == null ? 0 : record.key().length();
+        for (Header header : record.headers()) {
+            size += header.key().length() + (header.value() == null ? 0 : header.value().length);
+        }
+        return size;
+    }
+
+    @PreDestroy
+    void stop() {
+        retrier.shutdownNow();
+    }
+}
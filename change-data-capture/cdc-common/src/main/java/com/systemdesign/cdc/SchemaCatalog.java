@@ -0,0 +1,170 @@
+package com.systemdesign.cdc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.connect.data.Schema;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Binary event schemas by fingerprint, shared between the services without a registry: a relay appends
+ * each new schema to a local NDJSON file and publishes it to a compacted topic before sending the first
+ * event that uses it. Consumers load the file on start, follow the topic, and on an unknown fingerprint
+ * re-read the file and then wait briefly for the topic to catch up.
+ */
+@Slf4j
+@Component
+public class SchemaCatalog {
+
+    private static final int MAX_CACHED_CONNECT_SCHEMAS = 64;
+
+    private final Map<Long, EventSchema> schemas = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<EventSchema>> waiters = new ConcurrentHashMap<>();
+    // Only used by the Debezium engine thread
+    private final Map<Schema, EventSchema> byConnectSchema = new IdentityHashMap<>();
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private final String topic;
+    private final long lookupTimeoutMs;
+
+    public SchemaCatalog(KafkaTemplate<String, byte[]> kafkaTemplate,
+                         ObjectMapper objectMapper,
+                         @Value("${schema-catalog.file}") String file,
+                         @Value("${schema-catalog.topic}") String topic,
+                         @Value("${schema-catalog.lookup.timeout.ms}") long lookupTimeoutMs) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.file = file.isBlank() ? null : Path.of(file);
+        this.topic = topic;
+        this.lookupTimeoutMs = lookupTimeoutMs;
+    }
+
+    @PostConstruct
+    void load() {
+        loadFile();
+        log.info("Loaded {} event schemas from {}", schemas.size(), file);
+    }
+
+    /**
+     * Relay side: the binary schema of a row, published to the catalog the first time it is seen.
+     * Throws IllegalArgumentException for rows the binary format cannot encode.
+     */
+    public EventSchema register(Schema connectSchema) {
+        EventSchema schema = byConnectSchema.get(connectSchema);
+        if (schema != null) {
+            return schema;
+        }
+
+        schema = EventSchema.fromConnect(connectSchema);
+        if (!schemas.containsKey(schema.fingerprint())) {
+            publish(schema);
+            add(schema);
+        }
+        if (byConnectSchema.size() >= MAX_CACHED_CONNECT_SCHEMAS) {
+            byConnectSchema.clear();
+        }
+        byConnectSchema.put(connectSchema, schema);
+        return schema;
+    }
+
+    /**
+     * Consumer side: the schema an event was written with, waiting up to the lookup timeout for it to
+     * arrive on the catalog topic.
+     */
+    public EventSchema require(long fingerprint) throws InterruptedException {
+        EventSchema schema = schemas.get(fingerprint);
+        if (schema != null) {
+            return schema;
+        }
+        loadFile();
+
+        CompletableFuture<EventSchema> waiter = waiters.computeIfAbsent(fingerprint, id -> new CompletableFuture<>());
+        try {
+            schema = schemas.get(fingerprint);
+            return schema != null ? schema : waiter.get(lookupTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Unknown event schema " + Long.toHexString(fingerprint));
+        } finally {
+            waiters.remove(fingerprint, waiter);
+        }
+    }
+
+    public void add(byte[] json) throws IOException {
+        add(EventSchema.fromJson(objectMapper.readTree(json)));
+    }
+
+    public void add(EventSchema schema) {
+        if (schemas.putIfAbsent(schema.fingerprint(), schema) == null) {
+            CompletableFuture<EventSchema> waiter = waiters.get(schema.fingerprint());
+            if (waiter != null) {
+                waiter.complete(schema);
+            }
+        }
+    }
+
+    private void publish(EventSchema schema) {
+        byte[] json = schema.toJson(objectMapper).toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            if (file != null) {
+                if (file.toAbsolutePath().getParent() != null) {
+                    Files.createDirectories(file.toAbsolutePath().getParent());
+                }
+                // One short append per line, so relays of several services can share the file
+                byte[] line = Arrays.copyOf(json, json.length + 1);
+                line[json.length] = '\n';
+                Files.write(file, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            kafkaTemplate.send(topic, schema.fingerprintHex(), json).get(lookupTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write event schema to " + file, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing event schema", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Unable to publish event schema " + schema.fingerprintHex(), e);
+        }
+        log.info("Published event schema {} with {} columns", schema.fingerprintHex(), schema.columns().size());
+    }
+
+    private synchronized void loadFile() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("Unable to read event schemas from {}", file, e);
+            return;
+        }
+        for (String line : lines) {
+            try {
+                if (!line.isBlank()) {
+                    add(EventSchema.fromJson(objectMapper.readTree(line)));
+                }
+            } catch (IOException | RuntimeException e) {
+                // A half-written last line from a concurrent append is picked up on the next read
+                log.warn("Skipping unreadable event schema line in {}", file);
+            }
+        }
+    }
+}
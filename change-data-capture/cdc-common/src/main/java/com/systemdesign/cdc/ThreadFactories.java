@@ -0,0 +1,26 @@
+package com.systemdesign.cdc;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+// Threads the service starts itself (Debezium engine, relay acks, listener lanes) follow
+// spring.threads.virtual.enabled like Tomcat and the listener containers: virtual on Java 21+,
+// daemon platform threads otherwise
+public final class ThreadFactories {
+
+    private ThreadFactories() {
+    }
+
+    public static ThreadFactory named(Environment environment, String name) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory();
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(name + "-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+}
@@ -0,0 +1,101 @@
+package com.systemdesign.cdc;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Update-diff mode: for the configured tables an update is relayed as the key columns plus the
+ * columns of the table's allow-list that changed between the before and after images, instead of
+ * the whole row. The allow-lists use the message.key.columns format
+ * ({@code db.table:col1,col2;db.table2:col1}). Diff structs get a schema with just their columns,
+ * so both event formats encode them unchanged; the schemas are cached per column set. Like the
+ * serializers, an instance must only be used by the engine thread.
+ */
+public class UpdateDiff {
+
+    private static final int MAX_CACHED_SCHEMAS = 64;
+
+    private final Map<String, Set<String>> columnsByTable = new HashMap<>();
+    private final Map<Schema, Map<BitSet, Schema>> diffSchemas = new IdentityHashMap<>();
+
+    public UpdateDiff(String allowLists) {
+        for (String entry : allowLists.split(";")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected table:columns in update diff allow-list " + entry);
+            }
+            Set<String> columns = Set.of(Arrays.stream(entry.substring(separator + 1).split(","))
+                    .map(String::trim)
+                    .filter(column -> !column.isEmpty())
+                    .toArray(String[]::new));
+            columnsByTable.put(entry.substring(0, separator).trim(), columns);
+        }
+    }
+
+    public boolean isEnabled(String table) {
+        return columnsByTable.containsKey(table);
+    }
+
+    /**
+     * The key columns and the allowed columns that changed, or null when none of the allowed
+     * columns changed and the update can be dropped.
+     */
+    public Struct diff(String table, Struct before, Struct after, Schema keySchema) {
+        Set<String> allowed = columnsByTable.get(table);
+        Schema schema = after.schema();
+        BitSet columns = new BitSet(schema.fields().size());
+        boolean changed = false;
+        for (Field field : schema.fields()) {
+            if (keySchema != null && keySchema.field(field.name()) != null) {
+                columns.set(field.index());
+            } else if (allowed.contains(field.name())
+                    && (before == null || !Objects.deepEquals(before.get(field), after.get(field)))) {
+                columns.set(field.index());
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return null;
+        }
+
+        Schema diffSchema = diffSchemaFor(schema, columns);
+        Struct diff = new Struct(diffSchema);
+        for (Field field : diffSchema.fields()) {
+            diff.put(field, after.get(field.name()));
+        }
+        return diff;
+    }
+
+    private Schema diffSchemaFor(Schema schema, BitSet columns) {
+        Map<BitSet, Schema> bySet = diffSchemas.get(schema);
+        if (bySet == null) {
+            if (diffSchemas.size() >= MAX_CACHED_SCHEMAS) {
+                diffSchemas.clear();
+            }
+            bySet = new HashMap<>();
+            diffSchemas.put(schema, bySet);
+        }
+        return bySet.computeIfAbsent(columns, set -> {
+            SchemaBuilder builder = SchemaBuilder.struct().name(schema.name()).optional();
+            for (Field field : schema.fields()) {
+                if (set.get(field.index())) {
+                    builder.field(field.name(), field.schema());
+                }
+            }
+            return builder.build();
+        });
+    }
+}
@@ -0,0 +1,43 @@
+package com.systemdesign.cdc.listener;
+
+import com.systemdesign.cdc.DeadLetters;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Where the key-ordered lanes put records whose processing failed: <topic>.<application>.DLT, written and
+// confirmed before the lane acks the record, so a failure never commits past a record that was not kept
+@Component
+public class DeadLetterRecoverer implements ConsumerRecordRecoverer {
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final String application;
+    private final long sendTimeoutMs;
+
+    public DeadLetterRecoverer(KafkaTemplate<String, byte[]> kafkaTemplate,
+                               @Value("${spring.application.name}") String application,
+                               @Value("${consumer.dead-letter.send.timeout.ms}") long sendTimeoutMs) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.application = application;
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    @Override
+    public void accept(ConsumerRecord<?, ?> record, Exception error) {
+        try {
+            kafkaTemplate.send(DeadLetters.of(record, application, error)).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while dead-lettering a record of " + record.topic(), e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new KafkaException("Could not dead-letter a record of " + record.topic(), e);
+        }
+    }
+}
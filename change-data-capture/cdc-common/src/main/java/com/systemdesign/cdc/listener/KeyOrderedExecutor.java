@@ -0,0 +1,300 @@
+package com.systemdesign.cdc.listener;
+
+import com.systemdesign.cdc.FlightRecorder;
+import com.systemdesign.cdc.RateLimitedLog;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Fans records of a partition out to a fixed set of lanes, one thread each, chosen by record key. The
+ * lane threads come from the given factory, so they can be virtual threads.
+ * Records of one key run in arrival order; unrelated keys run concurrently. Each record is acked
+ * once processed, and with async acks the container only commits up to the lowest record that is
+ * not yet done. A full lane blocks the consumer thread, which bounds how far it reads ahead.
+ * A record whose processing fails is acked only after the recoverer has kept it; until then its
+ * partition holds at that record. When partitions are revoked, their queued records are dropped for
+ * the next owner and their running ones are given a bounded time to settle before the commit.
+ * Processing time per record is timed here, the listener method itself only hands records over, and
+ * each processed record goes to the flight recorder.
+ */
+@Slf4j
+public class KeyOrderedExecutor {
+
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(log);
+    private static final long RECOVERY_BACKOFF_MS = 1000;
+
+    private final String name;
+    private final Lane[] lanes;
+    private final Timer processingTimer;
+    private final FlightRecorder flightRecorder;
+    private final ConsumerRecordRecoverer recoverer;
+    // Partitions this executor has taken records of since they were last revoked
+    private final Map<TopicPartition, Assignment> assignments = new ConcurrentHashMap<>();
+
+    public KeyOrderedExecutor(String name, int parallelism, int queueCapacity, MeterRegistry meterRegistry,
+                              FlightRecorder flightRecorder, ThreadFactory threadFactory,
+                              ConsumerRecordRecoverer recoverer) {
+        this.name = name;
+        this.flightRecorder = flightRecorder;
+        this.recoverer = recoverer;
+        this.lanes = new Lane[parallelism > 1 ? parallelism : 0];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(queueCapacity);
+            lanes[i].thread = threadFactory.newThread(lanes[i]);
+            lanes[i].thread.start();
+        }
+
+        Gauge.builder("cdc.consumer.queue.depth", this, KeyOrderedExecutor::queueDepth)
+                .description("Records waiting in the key-ordered lanes of a listener")
+                .tag("listener", name)
+                .register(meterRegistry);
+        this.processingTimer = Timer.builder("cdc.consumer.processing")
+                .description("Time to process one record in the key-ordered lanes of a listener")
+                .tag("listener", name)
+                .register(meterRegistry);
+    }
+
+    public void execute(ConsumerRecord<?, ?> record, Runnable task, Acknowledgment ack) throws InterruptedException {
+        Assignment assignment = assignmentOf(record);
+        dispatch(record, assignment, () -> {
+            Throwable error = null;
+            try {
+                processingTimer.record(task);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            settle(record, assignment, error, ack);
+        });
+    }
+
+    // For tasks that can finish after they return: the task gets the record's lane to continue on, and the
+    // record is settled on that lane once the returned stage completes. The container commits nothing past an
+    // unacked record and pauses the consumer until the records of a poll are all acked, so a parked record
+    // holds back its partition instead of being lost. Only the task's own run is timed.
+    public void executeAsync(ConsumerRecord<?, ?> record, Function<Executor, ? extends CompletionStage<?>> task,
+                             Acknowledgment ack) throws InterruptedException {
+        Assignment assignment = assignmentOf(record);
+        Executor lane = laneExecutor(record);
+        dispatch(record, assignment, () -> {
+            CompletionStage<?> stage;
+            try {
+                stage = processingTimer.record(() -> task.apply(lane));
+            } catch (RuntimeException e) {
+                stage = CompletableFuture.failedFuture(e);
+            }
+            stage.whenCompleteAsync((result, error) -> settle(record, assignment, error, ack), lane);
+        });
+    }
+
+    // Called on the consumer thread before the container commits the revoked partitions
+    public void revoke(Collection<TopicPartition> partitions, Duration timeout) {
+        List<Assignment> revoked = new ArrayList<>();
+        for (TopicPartition partition : partitions) {
+            Assignment assignment = assignments.remove(partition);
+            if (assignment != null) {
+                assignment.revoked = true;
+                revoked.add(assignment);
+            }
+        }
+        if (revoked.isEmpty()) {
+            return;
+        }
+        for (Lane lane : lanes) {
+            lane.queue.removeIf(task -> task instanceof Work work && work.assignment.revoked);
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int unsettled = 0;
+        for (Assignment assignment : revoked) {
+            while (assignment.inFlight.get() > 0 && System.nanoTime() < deadline) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            // Acks that arrive from now on would be for partitions the container no longer tracks
+            assignment.closed = true;
+            unsettled += assignment.inFlight.get();
+        }
+        if (unsettled > 0) {
+            log.warn("{} records of revoked partitions of {} were still running, the next owner will redeliver them",
+                    unsettled, name);
+        }
+    }
+
+    public int queueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.queue.size();
+        }
+        return depth;
+    }
+
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            lane.thread.interrupt();
+        }
+        log.info("Key-ordered executor {} stopped", name);
+    }
+
+    private Assignment assignmentOf(ConsumerRecord<?, ?> record) {
+        return assignments.computeIfAbsent(new TopicPartition(record.topic(), record.partition()),
+                partition -> new Assignment());
+    }
+
+    private void dispatch(ConsumerRecord<?, ?> record, Assignment assignment, Runnable task)
+            throws InterruptedException {
+        Work work = new Work(assignment, task);
+        if (lanes.length == 0) {
+            work.run();
+        } else {
+            lanes[laneOf(record)].queue.put(work);
+        }
+    }
+
+    private Executor laneExecutor(ConsumerRecord<?, ?> record) {
+        return lanes.length == 0 ? Runnable::run : lanes[laneOf(record)];
+    }
+
+    private int laneOf(ConsumerRecord<?, ?> record) {
+        Object key = record.key();
+        return key == null ? 0 : Math.floorMod(key.hashCode(), lanes.length);
+    }
+
+    private void settle(ConsumerRecord<?, ?> record, Assignment assignment, Throwable error, Acknowledgment ack) {
+        try {
+            if (error != null && !recover(record, assignment, error)) {
+                return;
+            }
+            flightRecorder.record(FlightRecorder.Stage.PROCESSED, record, error == null ? "processed" : "dead-lettered");
+            if (!assignment.closed) {
+                ack.acknowledge();
+            }
+        } finally {
+            assignment.inFlight.decrementAndGet();
+        }
+    }
+
+    // Retried until the record is kept or its partition is gone; the lane waits meanwhile, like its partition
+    private boolean recover(ConsumerRecord<?, ?> record, Assignment assignment, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        Exception exception = cause instanceof Exception e ? e : new IllegalStateException(cause);
+        rateLimitedLog.error("Error processing record {}-{}@{} on {}, dead-lettering it", record.topic(),
+                record.partition(), record.offset(), name, cause);
+        while (!assignment.closed) {
+            try {
+                recoverer.accept(record, exception);
+                return true;
+            } catch (RuntimeException e) {
+                rateLimitedLog.error("Could not dead-letter record {}-{}@{} on {}, retrying", record.topic(),
+                        record.partition(), record.offset(), name, e);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(RECOVERY_BACKOFF_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        flightRecorder.record(FlightRecorder.Stage.PROCESSED, record, "failed");
+        return false;
+    }
+
+    private static final class Assignment {
+
+        // Queued records of a revoked partition are not started
+        private volatile boolean revoked;
+        // Records of a revoked partition that settle after its commit are not acked
+        private volatile boolean closed;
+        private final AtomicInteger inFlight = new AtomicInteger();
+    }
+
+    private static final class Work implements Runnable {
+
+        private final Assignment assignment;
+        private final Runnable task;
+
+        private Work(Assignment assignment, Runnable task) {
+            this.assignment = assignment;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            assignment.inFlight.incrementAndGet();
+            if (assignment.revoked) {
+                assignment.inFlight.decrementAndGet();
+                return;
+            }
+            task.run();
+        }
+    }
+
+    private static final class Lane implements Runnable, Executor {
+
+        private final BlockingQueue<Runnable> queue;
+        private Thread thread;
+
+        private Lane(int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        // Continuations of async tasks: inline when already on this lane, queued behind its records otherwise
+        @Override
+        public void execute(Runnable command) {
+            if (Thread.currentThread() == thread) {
+                command.run();
+                return;
+            }
+            try {
+                queue.put(command);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while queueing on " + thread.getName(), e);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                Runnable task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    rateLimitedLog.error("Error processing record on {}", thread.getName(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.systemdesign.cdc.listener;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+// Settles the lanes of revoked partitions before the container commits them, so lane acks only ever land
+// on partitions the container still tracks and queued records are left to the next owner
+public class KeyOrderedRebalanceListener implements ConsumerAwareRebalanceListener {
+
+    private final List<KeyOrderedExecutor> executors;
+    private final Duration drainTimeout;
+
+    public KeyOrderedRebalanceListener(List<KeyOrderedExecutor> executors, Duration drainTimeout) {
+        this.executors = executors;
+        this.drainTimeout = drainTimeout;
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        for (KeyOrderedExecutor executor : executors) {
+            executor.revoke(partitions, drainTimeout);
+        }
+    }
+
+    // Nothing can be committed for lost partitions, so there is no point waiting for their lanes
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        for (KeyOrderedExecutor executor : executors) {
+            executor.revoke(partitions, Duration.ZERO);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.systemdesign.cdc.listener;
+
+import com.systemdesign.cdc.SchemaCatalog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Every instance reads the whole compacted schema topic, group offsets are never used
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaCatalogListener implements ConsumerSeekAware {
+
+    private final SchemaCatalog schemaCatalog;
+
+    @KafkaListener(id = "schemaCatalog", topics = "${schema-catalog.topic}",
+            groupId = "${spring.application.name}-schema-catalog")
+    public void handleSchema(ConsumerRecord<String, byte[]> record) {
+        try {
+            schemaCatalog.add(record.value());
+        } catch (Exception e) {
+            log.error("Error reading event schema {}", record.key(), e);
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        callback.seekToBeginning(assignments.keySet());
+    }
+}
@@ -0,0 +1,10 @@
+package com.systemdesign.idempotency;
+
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+
+// For the consuming services that keep a processed_events table
+@Configuration
+@ComponentScan
+public class IdempotencyConfiguration {
+}
@@ -0,0 +1,110 @@
+package com.systemdesign.idempotency;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Recognises redelivered CDC events by their event id. A Bloom filter answers "definitely new" for
+ * almost every fresh event without touching the database; a possible hit is confirmed against a
+ * bounded set of recently processed ids and only then against the processed_events table. The table
+ * row is written in the same transaction as the event's effect, so its primary key is what finally
+ * guarantees one effect per event.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory") // processed_events is created by Hibernate before the warm-up reads it
+public class ProcessedEventFilter {
+
+    private final ProcessedEventRepository processedEventRepository;
+    private final RotatingBloomFilter bloomFilter;
+    private final Set<String> recent;
+    private final int warmUpSize;
+    private final long retentionHours;
+
+    public ProcessedEventFilter(ProcessedEventRepository processedEventRepository,
+                                @Value("${processed-events.bloom.capacity}") int bloomCapacity,
+                                @Value("${processed-events.recent.capacity}") int recentCapacity,
+                                @Value("${processed-events.retention.hours}") long retentionHours) {
+        this.processedEventRepository = processedEventRepository;
+        this.bloomFilter = new RotatingBloomFilter(bloomCapacity, 0.01);
+        this.recent = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > recentCapacity;
+            }
+        });
+        this.warmUpSize = bloomCapacity;
+        this.retentionHours = retentionHours;
+    }
+
+    public boolean isDuplicate(String eventId) {
+        if (eventId == null || !bloomFilter.mightContain(eventId)) {
+            return false;
+        }
+        synchronized (recent) {
+            if (recent.contains(eventId)) {
+                return true;
+            }
+        }
+        return processedEventRepository.exists(eventId);
+    }
+
+    // Must run inside the transaction of the effect; the ids only become visible to isDuplicate on commit
+    public void record(String eventId) {
+        if (eventId != null) {
+            recordAll(List.of(eventId));
+        }
+    }
+
+    public void recordAll(Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        processedEventRepository.insertAll(eventIds, LocalDateTime.now());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eventIds.forEach(ProcessedEventFilter.this::remember);
+            }
+        });
+    }
+
+    private void remember(String eventId) {
+        bloomFilter.add(eventId);
+        synchronized (recent) {
+            recent.add(eventId);
+        }
+    }
+
+    // Redeliveries after a restart are of recent events, so the latest ids are enough to start from
+    @PostConstruct
+    void warmUp() {
+        List<String> eventIds = processedEventRepository.findRecent(warmUpSize);
+        for (int i = eventIds.size() - 1; i >= 0; i--) {
+            remember(eventIds.get(i));
+        }
+        log.info("Processed event filter warmed up with {} event ids", eventIds.size());
+    }
+
+    @Scheduled(fixedDelayString = "${processed-events.purge.interval.ms}")
+    public void purge() {
+        int deleted = processedEventRepository.deleteOlderThan(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            log.info("Purged {} processed events older than {} hours", deleted, retentionHours);
+        }
+    }
+}
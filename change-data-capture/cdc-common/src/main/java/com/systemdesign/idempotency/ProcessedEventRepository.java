@@ -0,0 +1,42 @@
+package com.systemdesign.idempotency;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Plain JDBC so a second insert of the same event fails on the primary key instead of being merged
+@Repository
+@RequiredArgsConstructor
+public class ProcessedEventRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(Collection<String> eventIds, LocalDateTime processedAt) {
+        Timestamp timestamp = Timestamp.valueOf(processedAt);
+        jdbcTemplate.batchUpdate("INSERT INTO processed_events (event_id, processed_at) VALUES (?, ?)",
+                eventIds, eventIds.size(), (ps, eventId) -> {
+                    ps.setString(1, eventId);
+                    ps.setTimestamp(2, timestamp);
+                });
+    }
+
+    public boolean exists(String eventId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM processed_events WHERE event_id = ?", Integer.class, eventId);
+        return count != null && count > 0;
+    }
+
+    public List<String> findRecent(int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT event_id FROM processed_events ORDER BY processed_at DESC LIMIT ?", String.class, limit);
+    }
+
+    public int deleteOlderThan(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM processed_events WHERE processed_at < ?", Timestamp.valueOf(cutoff));
+    }
+}
@@ -0,0 +1,74 @@
+package com.systemdesign.idempotency;
+
+import java.util.Arrays;
+
+// Two Bloom filter generations: ids go into the current one, lookups check both, and once the current
+// one holds its capacity the older one is dropped. Memory stays fixed and the latest ids are always covered.
+final class RotatingBloomFilter {
+
+    private final int capacity;
+    private final int bits;
+    private final int hashes;
+    private long[] current;
+    private long[] previous;
+    private int count;
+
+    RotatingBloomFilter(int capacity, double falsePositiveRate) {
+        this.capacity = capacity;
+        long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, optimalBits));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        this.current = new long[(bits + 63) / 64];
+        this.previous = new long[current.length];
+    }
+
+    synchronized void add(String id) {
+        if (count >= capacity) {
+            long[] recycled = previous;
+            Arrays.fill(recycled, 0L);
+            previous = current;
+            current = recycled;
+            count = 0;
+        }
+        long hash = hash(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bits);
+            current[bit >>> 6] |= 1L << bit;
+        }
+        count++;
+    }
+
+    synchronized boolean mightContain(String id) {
+        return contains(current, id) || contains(previous, id);
+    }
+
+    private boolean contains(long[] filter, String id) {
+        long hash = hash(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bits);
+            if ((filter[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 64-bit FNV-1a over the chars, finished with the MurmurHash3 mixer
+    private static long hash(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            h ^= id.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,139 @@
+package com.systemdesign.harness;
+
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.h2.api.Trigger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Row-level H2 trigger that captures a table into the {@link SyntheticBinlog}, with row images typed
+ * like the MySQL connector's defaults: BIGINT as int64, INT as int32, DECIMAL as Connect Decimal and
+ * DATETIME as io.debezium.time.MicroTimestamp, names in lower case. Changes made inside a Spring
+ * transaction are appended after it commits, so nothing is relayed that a rollback could undo.
+ */
+public class BinlogTrigger implements Trigger {
+
+    private static final String MICRO_TIMESTAMP = "io.debezium.time.MicroTimestamp";
+
+    private String database;
+    private String table;
+    private Schema rowSchema;
+    private Schema envelopeSchema;
+
+    public static void install(JdbcTemplate jdbcTemplate, String table) {
+        jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS " + table + "_binlog AFTER INSERT, UPDATE, DELETE ON "
+                + table + " FOR EACH ROW CALL '" + BinlogTrigger.class.getName() + "'");
+    }
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+                     int type) throws SQLException {
+        database = conn.getCatalog().toLowerCase(Locale.ROOT);
+        table = tableName.toLowerCase(Locale.ROOT);
+
+        SchemaBuilder row = SchemaBuilder.struct().name(database + "." + table + ".Value").optional();
+        DatabaseMetaData metaData = conn.getMetaData();
+        // JDBC returns the columns in table order, the order of the trigger's row arrays
+        try (ResultSet columns = metaData.getColumns(null, schemaName, tableName, null)) {
+            while (columns.next()) {
+                row.field(columns.getString("COLUMN_NAME").toLowerCase(Locale.ROOT),
+                        columnSchema(columns.getInt("DATA_TYPE"), columns.getInt("COLUMN_SIZE"),
+                                columns.getInt("DECIMAL_DIGITS"),
+                                columns.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls));
+            }
+        }
+        rowSchema = row.build();
+        envelopeSchema = SchemaBuilder.struct()
+                .name(database + "." + table + ".Envelope")
+                .field("before", rowSchema)
+                .field("after", rowSchema)
+                .field("source", SyntheticBinlog.SOURCE_SCHEMA)
+                .field("op", Schema.STRING_SCHEMA)
+                .field("ts_ms", Schema.OPTIONAL_INT64_SCHEMA)
+                .build();
+    }
+
+    private static Schema columnSchema(int sqlType, int precision, int scale, boolean nullable) {
+        SchemaBuilder builder = switch (sqlType) {
+            case Types.BIGINT -> SchemaBuilder.int64();
+            case Types.INTEGER, Types.SMALLINT, Types.TINYINT -> SchemaBuilder.int32();
+            case Types.BOOLEAN, Types.BIT -> SchemaBuilder.bool();
+            case Types.DOUBLE, Types.FLOAT, Types.REAL -> SchemaBuilder.float64();
+            case Types.DECIMAL, Types.NUMERIC -> Decimal.builder(scale)
+                    .parameter("connect.decimal.precision", String.valueOf(precision));
+            case Types.TIMESTAMP -> SchemaBuilder.int64().name(MICRO_TIMESTAMP);
+            // VARCHAR, and the ENUM columns Hibernate creates for @Enumerated(STRING)
+            default -> SchemaBuilder.string();
+        };
+        return nullable ? builder.optional().build() : builder.build();
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) {
+        String operation = oldRow == null ? "c" : newRow == null ? "d" : "u";
+        Struct envelope = new Struct(envelopeSchema)
+                .put("before", toStruct(oldRow))
+                .put("after", toStruct(newRow))
+                .put("op", operation);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    SyntheticBinlog.append(database, table, envelope);
+                }
+            });
+        } else {
+            SyntheticBinlog.append(database, table, envelope);
+        }
+    }
+
+    private Struct toStruct(Object[] values) {
+        if (values == null) {
+            return null;
+        }
+        Struct struct = new Struct(rowSchema);
+        List<Field> fields = rowSchema.fields();
+        for (int i = 0; i < fields.size(); i++) {
+            struct.put(fields.get(i), toConnect(fields.get(i).schema(), values[i]));
+        }
+        return struct;
+    }
+
+    private static Object toConnect(Schema schema, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (MICRO_TIMESTAMP.equals(schema.name())) {
+            LocalDateTime dateTime = value instanceof Timestamp timestamp ? timestamp.toLocalDateTime()
+                    : (LocalDateTime) value;
+            return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+        }
+        if (Decimal.LOGICAL_NAME.equals(schema.name())) {
+            return ((BigDecimal) value).setScale(Integer.parseInt(schema.parameters().get(Decimal.SCALE_FIELD)));
+        }
+        return switch (schema.type()) {
+            case INT64 -> ((Number) value).longValue();
+            case INT32 -> ((Number) value).intValue();
+            case FLOAT64 -> ((Number) value).doubleValue();
+            case BOOLEAN -> value;
+            default -> value.toString();
+        };
+    }
+}
@@ -0,0 +1,170 @@
+package com.systemdesign.harness;
+
+import com.systemdesign.billing.BillingServiceApplication;
+import com.systemdesign.cdc.CdcConfiguration;
+import com.systemdesign.idempotency.IdempotencyConfiguration;
+import com.systemdesign.inventory.InventoryServiceApplication;
+import com.systemdesign.order.OrderServiceApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * The three services in one JVM: an embedded KRaft broker, and per service an application context built
+ * from the service's own beans and application.yml, on an in-memory H2 database whose captured table
+ * feeds the synthetic binlog. Only the DebeziumConfig is swapped, the relays, listeners and services
+ * run unchanged.
+ */
+@Slf4j
+public class EmbeddedServices implements AutoCloseable {
+
+    private static final String[] TOPICS = {"order-created", "order-updated", "order-deleted",
+            "inventory-updated", "billing-updated", "cdc-schemas"};
+
+    private final EmbeddedKafkaKraftBroker broker;
+    private final Path dataDirectory;
+    private final boolean virtualThreads;
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private ConfigurableApplicationContext order;
+    private ConfigurableApplicationContext inventory;
+    private ConfigurableApplicationContext billing;
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EnableScheduling
+    @AutoConfigurationPackage(basePackageClasses = OrderServiceApplication.class)
+    @ComponentScan(basePackageClasses = OrderServiceApplication.class, excludeFilters = @ComponentScan.Filter(
+            type = FilterType.ASSIGNABLE_TYPE,
+            classes = {OrderServiceApplication.class, com.systemdesign.order.config.DebeziumConfig.class}))
+    @Import({CdcConfiguration.class, SyntheticBinlogConfig.class})
+    static class OrderServiceContext {
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EnableScheduling
+    @AutoConfigurationPackage(basePackageClasses = InventoryServiceApplication.class)
+    @ComponentScan(basePackageClasses = InventoryServiceApplication.class, excludeFilters = @ComponentScan.Filter(
+            type = FilterType.ASSIGNABLE_TYPE,
+            classes = {InventoryServiceApplication.class, com.systemdesign.inventory.config.DebeziumConfig.class}))
+    @Import({CdcConfiguration.class, IdempotencyConfiguration.class, SyntheticBinlogConfig.class})
+    static class InventoryServiceContext {
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EnableScheduling
+    @AutoConfigurationPackage(basePackageClasses = BillingServiceApplication.class)
+    @ComponentScan(basePackageClasses = BillingServiceApplication.class, excludeFilters = @ComponentScan.Filter(
+            type = FilterType.ASSIGNABLE_TYPE,
+            classes = {BillingServiceApplication.class, com.systemdesign.billing.config.DebeziumConfig.class}))
+    @Import({CdcConfiguration.class, IdempotencyConfiguration.class, SyntheticBinlogConfig.class})
+    static class BillingServiceContext {
+    }
+
+    public EmbeddedServices(int partitions, boolean virtualThreads) throws IOException {
+        this.dataDirectory = Files.createTempDirectory("cdc-load-harness");
+        this.virtualThreads = virtualThreads;
+        this.broker = new EmbeddedKafkaKraftBroker(1, partitions, TOPICS);
+        broker.afterPropertiesSet();
+        log.info("Embedded Kafka broker started at {} with {} partitions per topic", broker.getBrokersAsString(),
+                partitions);
+    }
+
+    public void start() throws IOException {
+        billing = start(BillingServiceContext.class, "billing-service", "billing_db");
+        BinlogTrigger.install(billing.getBean(JdbcTemplate.class), "invoices");
+        inventory = start(InventoryServiceContext.class, "inventory-service", "inventory_db");
+        BinlogTrigger.install(inventory.getBean(JdbcTemplate.class), "inventory");
+        order = start(OrderServiceContext.class, "order-service", "order_db");
+        BinlogTrigger.install(order.getBean(JdbcTemplate.class), "orders");
+    }
+
+    private ConfigurableApplicationContext start(Class<?> context, String applicationName, String database)
+            throws IOException {
+        ConfigurableApplicationContext applicationContext = new SpringApplicationBuilder(context)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run("--spring.config.location=" + applicationYml(applicationName),
+                        "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.open-in-view=false",
+                        "--spring.jpa.properties.hibernate.dialect=",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                        "--debezium.connector.offset.file=" + dataDirectory.resolve(database + "-offsets.dat"),
+                        "--schema-catalog.file=" + dataDirectory.resolve("cdc-schemas.ndjson"),
+                        "--order-read-model.snapshot.file=" + dataDirectory.resolve("billing-order-read-model.bin"),
+                        "--spring.profiles.active=" + (virtualThreads ? "virtual-threads" : "default"),
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.systemdesign.harness=INFO");
+        contexts.add(applicationContext);
+        log.info("Started {} on {}", applicationName, database);
+        return applicationContext;
+    }
+
+    // Every service jar carries an application.yml; the one naming the service is its own
+    private static String applicationYml(String applicationName) throws IOException {
+        YamlPropertySourceLoader loader = new YamlPropertySourceLoader();
+        Enumeration<URL> candidates = EmbeddedServices.class.getClassLoader().getResources("application.yml");
+        while (candidates.hasMoreElements()) {
+            URL candidate = candidates.nextElement();
+            for (PropertySource<?> source : loader.load(candidate.toString(), new UrlResource(candidate))) {
+                if (applicationName.equals(source.getProperty("spring.application.name"))) {
+                    return candidate.toString();
+                }
+            }
+        }
+        throw new IllegalStateException("No application.yml of " + applicationName + " on the classpath");
+    }
+
+    public ConfigurableApplicationContext order() {
+        return order;
+    }
+
+    public ConfigurableApplicationContext inventory() {
+        return inventory;
+    }
+
+    public ConfigurableApplicationContext billing() {
+        return billing;
+    }
+
+    // Upstream first, so no service is left relaying into a stopped consumer for long
+    @Override
+    public void close() throws IOException {
+        for (int i = contexts.size() - 1; i >= 0; i--) {
+            contexts.get(i).close();
+        }
+        broker.destroy();
+        FileSystemUtils.deleteRecursively(dataDirectory);
+    }
+}
@@ -0,0 +1,335 @@
+package com.systemdesign.harness;
+
+import com.systemdesign.order.entity.Order;
+import com.systemdesign.order.entity.OrderStatus;
+import com.systemdesign.order.service.OrderService;
+import com.systemdesign.order.service.OrderTimelines;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives orders through the embedded services at a fixed rate and reports what came out the other
+ * end: relayed change events per second, order to BILLED latency from the order timelines, the
+ * thread and heap footprint, and the invoices per order, where anything but exactly one for a reserved
+ * order fails the run.
+ */
+@Slf4j
+public class LoadHarness implements ApplicationRunner, ExitCodeGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final int ordersPerSecond;
+    private final int durationSeconds;
+    private final int clients;
+    private final int products;
+    private final double skuSkew;
+    private final int drainTimeoutSeconds;
+    private final int partitions;
+    private final boolean virtualThreads;
+    private int exitCode;
+
+    public LoadHarness(@Value("${harness.orders.per.second}") int ordersPerSecond,
+                       @Value("${harness.duration.seconds}") int durationSeconds,
+                       @Value("${harness.clients}") int clients,
+                       @Value("${harness.products}") int products,
+                       @Value("${harness.sku.skew}") double skuSkew,
+                       @Value("${harness.drain.timeout.seconds}") int drainTimeoutSeconds,
+                       @Value("${harness.kafka.partitions}") int partitions,
+                       @Value("${harness.virtual.threads}") boolean virtualThreads) {
+        this.ordersPerSecond = ordersPerSecond;
+        this.durationSeconds = durationSeconds;
+        this.clients = clients;
+        this.products = products;
+        this.skuSkew = skuSkew;
+        this.drainTimeoutSeconds = drainTimeoutSeconds;
+        this.partitions = partitions;
+        this.virtualThreads = virtualThreads;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        try (EmbeddedServices services = new EmbeddedServices(partitions, virtualThreads)) {
+            services.start();
+            seedProducts(services.inventory().getBean(JdbcTemplate.class));
+
+            log.info("Offering {} orders/s for {}s from {} clients over {} products (skew {})",
+                    ordersPerSecond, durationSeconds, clients, products, skuSkew);
+            long startedAt = System.nanoTime();
+            List<Long> orderIds = generate(services.order().getBean(OrderService.class));
+            long generatedAt = System.nanoTime();
+            double eventsDuringLoad = relayedEvents(services);
+
+            OrderTimelines timelines = services.order().getBean(OrderTimelines.class);
+            boolean drained = awaitDrain(timelines, orderIds);
+            long drainedAt = System.nanoTime();
+            double events = relayedEvents(services);
+
+            double loadSeconds = (generatedAt - startedAt) / 1e9;
+            double totalSeconds = (drainedAt - startedAt) / 1e9;
+            log.info("Created {} orders in {}s: {} orders/s", orderIds.size(), format(loadSeconds),
+                    format(orderIds.size() / loadSeconds));
+            log.info("Relayed {} change events: {} events/s under load, {} events/s until {}", (long) events,
+                    format(eventsDuringLoad / loadSeconds), format(events / totalSeconds),
+                    drained ? "drained" : "the drain timeout");
+            reportLatency(timelines, orderIds);
+            reportFootprint(Threading.VIRTUAL.isActive(services.order().getEnvironment()));
+            exitCode = checkInvoices(services, orderIds) ? 0 : 1;
+        }
+    }
+
+    private void seedProducts(JdbcTemplate jdbcTemplate) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < products; i++) {
+            rows.add(new Object[]{sku(i), "Product " + i, Integer.MAX_VALUE});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (product_id, product_name, available_stock) VALUES (?, ?, ?)",
+                rows);
+    }
+
+    // Open model: order n is due at start + n / rate whatever the response times, until the duration ends
+    private List<Long> generate(OrderService orderService) throws InterruptedException {
+        SkuSampler skus = new SkuSampler(products, skuSkew);
+        Queue<Long> orderIds = new ConcurrentLinkedQueue<>();
+        AtomicLong next = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ordersPerSecond;
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        for (int i = 0; i < clients; i++) {
+            executor.execute(() -> {
+                long due;
+                while ((due = start + next.getAndIncrement() * intervalNanos) < end) {
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    try {
+                        orderIds.add(orderService.createOrder(newOrder(skus.next())).getId());
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                        log.warn("Order creation failed", e);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(durationSeconds + 60L, TimeUnit.SECONDS);
+        if (failures.get() > 0) {
+            log.warn("{} orders could not be created", failures.get());
+        }
+        return new ArrayList<>(orderIds);
+    }
+
+    private static Order newOrder(String productId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Order order = new Order();
+        order.setCustomerId("CUST-" + random.nextInt(1000));
+        order.setProductId(productId);
+        order.setQuantity(1 + random.nextInt(3));
+        order.setTotalAmount(BigDecimal.valueOf(1_000 + random.nextInt(100_000), 2));
+        return order;
+    }
+
+    // Drained once every order's timeline reached BILLED or INVENTORY_FAILED
+    private boolean awaitDrain(OrderTimelines timelines, List<Long> orderIds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainTimeoutSeconds);
+        while (true) {
+            long open = orderIds.stream().filter(orderId -> !isSettled(timelines, orderId)).count();
+            if (open == 0) {
+                return true;
+            }
+            if (System.nanoTime() > deadline) {
+                log.warn("{} of {} orders neither billed nor failed after {}s", open, orderIds.size(),
+                        drainTimeoutSeconds);
+                return false;
+            }
+            Thread.sleep(200);
+        }
+    }
+
+    private static boolean isSettled(OrderTimelines timelines, Long orderId) {
+        return timelines.find(orderId)
+                .map(timeline -> timeline.transitions().stream().anyMatch(transition ->
+                        transition.status() == OrderStatus.BILLED || transition.status() == OrderStatus.INVENTORY_FAILED))
+                .orElse(false);
+    }
+
+    private void reportLatency(OrderTimelines timelines, List<Long> orderIds) {
+        Histogram histogram = new Histogram(HIGHEST_TRACKABLE_MS, 2);
+        for (Long orderId : orderIds) {
+            timelines.find(orderId).ifPresent(timeline -> {
+                Map<OrderStatus, Long> at = new HashMap<>();
+                timeline.transitions().forEach(transition ->
+                        at.put(transition.status(), transition.at().toEpochMilli()));
+                if (at.containsKey(OrderStatus.PENDING) && at.containsKey(OrderStatus.BILLED)) {
+                    histogram.recordValue(Math.min(Math.max(0, at.get(OrderStatus.BILLED) - at.get(OrderStatus.PENDING)),
+                            HIGHEST_TRACKABLE_MS));
+                }
+            });
+        }
+        if (histogram.getTotalCount() == 0) {
+            log.warn("No order reached BILLED");
+            return;
+        }
+        log.info("Order to BILLED over {} orders: p50 {} ms, p90 {} ms, p99 {} ms, p99.9 {} ms, max {} ms",
+                histogram.getTotalCount(), histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9), histogram.getMaxValue());
+        for (OrderTimelines.StageLatency stage : timelines.stageLatencies()) {
+            if (stage.count() > 0) {
+                log.info("  {} ({} to {}): p50 {} ms, p99 {} ms, max {} ms", stage.stage(), stage.from(), stage.to(),
+                        stage.p50Ms(), stage.p99Ms(), stage.maxMs());
+            }
+        }
+    }
+
+    // Every order whose stock was reserved must end up with exactly one invoice
+    // Virtual threads are not in the thread counts, which is the point of comparing the two modes. On Java
+    // 17 the services fall back to platform threads even when asked for virtual ones.
+    private static void reportFootprint(boolean virtualThreads) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        ManagementFactory.getMemoryMXBean().gc();
+        long liveHeap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        log.info("{} threads on Java {}: {} platform threads live, {} at peak; heap {} MB at peak, {} MB live",
+                virtualThreads ? "Virtual" : "Platform", Runtime.version().feature(), threads.getThreadCount(),
+                threads.getPeakThreadCount(), peakHeap >> 20, liveHeap >> 20);
+    }
+
+    private boolean checkInvoices(EmbeddedServices services, List<Long> orderIds) {
+        Map<Long, String> statuses = orderStatuses(services.order().getBean(JdbcTemplate.class));
+        Set<Long> reserved = new HashSet<>(services.inventory().getBean(JdbcTemplate.class).queryForList(
+                "SELECT order_id FROM inventory WHERE status = 'RESERVED'", Long.class));
+        Map<Long, Long> invoices = new HashMap<>();
+        services.billing().getBean(JdbcTemplate.class).query(
+                "SELECT order_id, COUNT(*) FROM invoices GROUP BY order_id",
+                row -> {
+                    invoices.put(row.getLong(1), row.getLong(2));
+                });
+
+        long billed = 0;
+        long failed = 0;
+        long other = 0;
+        long duplicates = 0;
+        long lost = 0;
+        for (Long orderId : orderIds) {
+            String status = statuses.get(orderId);
+            if (OrderStatus.BILLED.name().equals(status)) {
+                billed++;
+            } else if (OrderStatus.INVENTORY_FAILED.name().equals(status)) {
+                failed++;
+            } else {
+                other++;
+            }
+            long count = invoices.getOrDefault(orderId, 0L);
+            if (count > 1) {
+                duplicates++;
+            } else if (count == 0 && reserved.contains(orderId)) {
+                lost++;
+            }
+        }
+        log.info("Order rows: {} BILLED, {} INVENTORY_FAILED, {} in another status", billed, failed, other);
+        if (other > 0) {
+            // inventory-updated and billing-updated are separate topics, a late RESERVED can land after INVOICED
+            log.warn("{} order rows are not in a final status, see their timelines for the order of updates", other);
+        }
+        log.info("Invoices: {} for {} orders, {} orders invoiced more than once, {} reserved orders without one",
+                invoices.values().stream().mapToLong(Long::longValue).sum(), invoices.size(), duplicates, lost);
+        if (duplicates > 0 || lost > 0) {
+            log.error("Load run FAILED: {} duplicate and {} lost invoices", duplicates, lost);
+            return false;
+        }
+        return true;
+    }
+
+    private static Map<Long, String> orderStatuses(JdbcTemplate orders) {
+        Map<Long, String> statuses = new HashMap<>();
+        orders.query("SELECT id, status FROM orders", row -> {
+            statuses.put(row.getLong(1), row.getString(2));
+        });
+        return statuses;
+    }
+
+    private static double relayedEvents(EmbeddedServices services) {
+        double events = 0;
+        for (ConfigurableApplicationContext context : List.of(services.order(), services.inventory(),
+                services.billing())) {
+            events += context.getBean(MeterRegistry.class).find("cdc.relay.events").counters().stream()
+                    .mapToDouble(Counter::count)
+                    .sum();
+        }
+        return events;
+    }
+
+    private static String sku(int index) {
+        return String.format("PROD-%03d", index + 1);
+    }
+
+    private static String format(double value) {
+        return String.format("%.1f", value);
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    // Zipf over the products through its cumulative distribution
+    private static final class SkuSampler {
+
+        private final double[] cumulative;
+
+        private SkuSampler(int products, double skew) {
+            cumulative = new double[products];
+            double sum = 0;
+            for (int i = 0; i < products; i++) {
+                sum += 1 / Math.pow(i + 1, skew);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < products; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        String next() {
+            int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+            return sku(Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.systemdesign.harness;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Import;
+
+// Run with: java -jar target/cdc-load-harness-1.0.0-exec.jar --harness.orders.per.second=500
+@SpringBootConfiguration
+@Import(LoadHarness.class)
+public class LoadHarnessApplication {
+
+    public static void main(String[] args) {
+        System.exit(SpringApplication.exit(new SpringApplicationBuilder(LoadHarnessApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                // The service jars' application.yml files are for the services' own contexts
+                .properties("spring.config.name=cdc-load-harness")
+                .run(args)));
+    }
+}
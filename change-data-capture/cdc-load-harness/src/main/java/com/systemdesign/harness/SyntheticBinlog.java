@@ -0,0 +1,97 @@
+package com.systemdesign.harness;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory stand-in for the MySQL binlog of each embedded database. {@link BinlogTrigger} appends the
+ * committed row changes in commit order, stamping the source block the relays read (binlog coordinates
+ * for event ids, commit time for lag); {@link SyntheticBinlogTask} drains them into the Debezium engine.
+ */
+final class SyntheticBinlog {
+
+    static final String FILE = "harness-bin.000001";
+
+    static final Schema SOURCE_SCHEMA = SchemaBuilder.struct()
+            .name("io.debezium.connector.mysql.Source")
+            .field("connector", Schema.STRING_SCHEMA)
+            .field("name", Schema.STRING_SCHEMA)
+            .field("ts_ms", Schema.INT64_SCHEMA)
+            .field("snapshot", SchemaBuilder.string().optional().defaultValue("false").build())
+            .field("db", Schema.STRING_SCHEMA)
+            .field("table", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("server_id", Schema.INT64_SCHEMA)
+            .field("file", Schema.STRING_SCHEMA)
+            .field("pos", Schema.INT64_SCHEMA)
+            .field("row", Schema.INT32_SCHEMA)
+            .build();
+
+    private static final Map<String, Database> DATABASES = new ConcurrentHashMap<>();
+
+    private SyntheticBinlog() {
+    }
+
+    record Event(String table, Struct envelope, long position) {
+    }
+
+    // Envelope with before, after and op set; the source block and ts_ms are added here
+    static void append(String database, String table, Struct envelope) {
+        database(database).append(table, envelope);
+    }
+
+    static List<Event> poll(String database, int maxEvents, long timeoutMs) throws InterruptedException {
+        return database(database).poll(maxEvents, timeoutMs);
+    }
+
+    private static Database database(String name) {
+        return DATABASES.computeIfAbsent(name, Database::new);
+    }
+
+    private static final class Database {
+
+        private final String name;
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        private long position = 4;
+
+        private Database(String name) {
+            this.name = name;
+        }
+
+        // Positions are taken under the lock so the queue stays in position order
+        synchronized void append(String table, Struct envelope) {
+            long now = System.currentTimeMillis();
+            long pos = position++;
+            envelope.put("source", new Struct(SOURCE_SCHEMA)
+                    .put("connector", "mysql")
+                    .put("name", name + "-harness")
+                    .put("ts_ms", now)
+                    .put("db", name)
+                    .put("table", table)
+                    .put("server_id", 1L)
+                    .put("file", FILE)
+                    .put("pos", pos)
+                    .put("row", 0));
+            envelope.put("ts_ms", now);
+            events.add(new Event(table, envelope, pos));
+        }
+
+        List<Event> poll(int maxEvents, long timeoutMs) throws InterruptedException {
+            List<Event> batch = new ArrayList<>();
+            Event first = events.poll(timeoutMs, TimeUnit.MILLISECONDS);
+            if (first != null) {
+                batch.add(first);
+                events.drainTo(batch, maxEvents - 1);
+            }
+            return batch;
+        }
+    }
+}
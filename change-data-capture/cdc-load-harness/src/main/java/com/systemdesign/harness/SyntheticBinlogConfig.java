@@ -0,0 +1,31 @@
+package com.systemdesign.harness;
+
+import io.debezium.config.Configuration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+
+// Stands in for the services' DebeziumConfig: their engine settings, reading the synthetic binlog
+public class SyntheticBinlogConfig {
+
+    @Bean
+    public Configuration debeziumConfiguration(@Value("${spring.application.name}") String applicationName,
+                                               @Value("${debezium.connector.database.dbname}") String dbName,
+                                               @Value("${debezium.connector.message.key.columns}") String messageKeyColumns,
+                                               @Value("${debezium.connector.max.batch.size}") String maxBatchSize,
+                                               @Value("${debezium.connector.max.queue.size}") String maxQueueSize,
+                                               @Value("${debezium.connector.offset.flush.interval.ms}") String offsetFlushInterval,
+                                               @Value("${debezium.connector.offset.file}") String offsetFile) {
+        return Configuration.create()
+                .with("connector.class", SyntheticBinlogConnector.class.getName())
+                .with("offset.storage", "org.apache.kafka.connect.storage.FileOffsetBackingStore")
+                .with("offset.storage.file.filename", offsetFile)
+                .with("offset.flush.interval.ms", offsetFlushInterval)
+                .with("max.batch.size", maxBatchSize)
+                .with("max.queue.size", maxQueueSize)
+                .with("name", applicationName + "-harness-connector")
+                .with(SyntheticBinlogConnector.DATABASE_CONFIG, dbName)
+                .with("message.key.columns", messageKeyColumns)
+                .with("topic.prefix", dbName.replace("_db", "") + "-cdc")
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+package com.systemdesign.harness;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.connect.connector.Task;
+import org.apache.kafka.connect.source.SourceConnector;
+
+import java.util.List;
+import java.util.Map;
+
+// Source connector the harness runs in the services' Debezium engines in place of the MySQL connector
+public class SyntheticBinlogConnector extends SourceConnector {
+
+    static final String DATABASE_CONFIG = "harness.database";
+
+    private Map<String, String> config;
+
+    @Override
+    public void start(Map<String, String> props) {
+        this.config = props;
+    }
+
+    @Override
+    public Class<? extends Task> taskClass() {
+        return SyntheticBinlogTask.class;
+    }
+
+    @Override
+    public List<Map<String, String>> taskConfigs(int maxTasks) {
+        return List.of(config);
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public ConfigDef config() {
+        return new ConfigDef();
+    }
+
+    @Override
+    public String version() {
+        return "1.0.0";
+    }
+}
@@ -0,0 +1,98 @@
+package com.systemdesign.harness;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.source.SourceTask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns the synthetic binlog of one database into the SourceRecords the MySQL connector would emit:
+ * topic {@code <topic.prefix>.<db>.<table>}, a key Struct of the table's message.key.columns (the
+ * primary key {@code id} otherwise) and the offset of the binlog position.
+ */
+public class SyntheticBinlogTask extends SourceTask {
+
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private String database;
+    private String topicPrefix;
+    private int maxBatchSize;
+    private Map<String, String> sourcePartition;
+    private final Map<String, List<String>> keyColumns = new HashMap<>();
+    private final Map<String, Schema> keySchemas = new HashMap<>();
+
+    @Override
+    public void start(Map<String, String> props) {
+        database = props.get(SyntheticBinlogConnector.DATABASE_CONFIG);
+        topicPrefix = props.get("topic.prefix");
+        maxBatchSize = Integer.parseInt(props.getOrDefault("max.batch.size", "2048"));
+        sourcePartition = Map.of("server", topicPrefix);
+        // Same format as the MySQL connector: db.table:column,column;db.table:column
+        String columns = props.getOrDefault("message.key.columns", "");
+        for (String entry : columns.split(";")) {
+            int separator = entry.indexOf(':');
+            if (separator > 0) {
+                keyColumns.put(entry.substring(0, separator).trim(),
+                        Arrays.stream(entry.substring(separator + 1).split(",")).map(String::trim).toList());
+            }
+        }
+    }
+
+    @Override
+    public List<SourceRecord> poll() throws InterruptedException {
+        List<SyntheticBinlog.Event> events = SyntheticBinlog.poll(database, maxBatchSize, POLL_TIMEOUT_MS);
+        if (events.isEmpty()) {
+            return null;
+        }
+        List<SourceRecord> records = new ArrayList<>(events.size());
+        for (SyntheticBinlog.Event event : events) {
+            Struct envelope = event.envelope();
+            Struct row = envelope.getStruct("d".equals(envelope.getString("op")) ? "before" : "after");
+            Schema keySchema = keySchemas.computeIfAbsent(event.table(), table -> keySchema(table, row.schema()));
+            Struct key = new Struct(keySchema);
+            for (Field field : keySchema.fields()) {
+                key.put(field, row.get(field.name()));
+            }
+            records.add(new SourceRecord(sourcePartition,
+                    Map.of("file", SyntheticBinlog.FILE, "pos", event.position()),
+                    topicPrefix + "." + database + "." + event.table(), null,
+                    keySchema, key, envelope.schema(), envelope));
+        }
+        return records;
+    }
+
+    private Schema keySchema(String table, Schema rowSchema) {
+        SchemaBuilder builder = SchemaBuilder.struct().name(topicPrefix + "." + database + "." + table + ".Key");
+        for (String column : keyColumns.getOrDefault(database + "." + table, List.of("id"))) {
+            Schema columnSchema = rowSchema.field(column).schema();
+            // Key columns are never null, the row images declare every column optional or not as in the table
+            builder.field(column, columnSchema.isOptional() ? required(columnSchema) : columnSchema);
+        }
+        return builder.build();
+    }
+
+    private static Schema required(Schema schema) {
+        SchemaBuilder builder = new SchemaBuilder(schema.type()).name(schema.name());
+        if (schema.parameters() != null) {
+            builder.parameters(schema.parameters());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public String version() {
+        return "1.0.0";
+    }
+}
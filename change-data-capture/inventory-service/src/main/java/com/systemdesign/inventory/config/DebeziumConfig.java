@@ -1,5 +1,9 @@
 package com.systemdesign.inventory.config;
 
+import com.systemdesign.cdc.CompactingFileSchemaHistory;
+import com.systemdesign.cdc.JdbcOffsetBackingStore;
+import com.systemdesign.cdc.MappedFileOffsetBackingStore;
+import com.systemdesign.inventory.cdc.IncrementalSnapshots;
 import io.debezium.config.Configuration;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -34,16 +38,58 @@ public class DebeziumConfig {
     @Value("${debezium.connector.offset.file}")
     private String offsetFile;
 
+    @Value("${debezium.connector.offset.legacy.file}")
+    private String legacyOffsetFile;
+
     @Value("${debezium.connector.offset.flush.interval.ms}")
     private String offsetFlushInterval;
 
+    @Value("${spring.datasource.url}")
+    private String offsetJdbcUrl;
+
+    @Value("${spring.datasource.username}")
+    private String offsetJdbcUser;
+
+    @Value("${spring.datasource.password}")
+    private String offsetJdbcPassword;
+
+    @Value("${debezium.connector.schema.history.file}")
+    private String schemaHistoryFile;
+
+    @Value("${debezium.connector.schema.history.compaction.min.age.ms}")
+    private String schemaHistoryCompactionMinAge;
+
+    @Value("${debezium.connector.schema.history.compaction.threshold}")
+    private String schemaHistoryCompactionThreshold;
+
+    @Value("${debezium.connector.snapshot.mode}")
+    private String snapshotMode;
+
+    @Value("${debezium.connector.incremental.snapshot.chunk.size}")
+    private String incrementalSnapshotChunkSize;
+
+    @Value("${debezium.connector.message.key.columns}")
+    private String messageKeyColumns;
+
+    @Value("${debezium.connector.max.batch.size}")
+    private String maxBatchSize;
+
+    @Value("${debezium.connector.max.queue.size}")
+    private String maxQueueSize;
+
     @Bean
     public Configuration debeziumConfiguration() {
         return Configuration.create()
                 .with("connector.class", "io.debezium.connector.mysql.MySqlConnector")
                 .with("offset.storage", offsetStorage)
                 .with("offset.storage.file.filename", offsetFile)
+                .with(MappedFileOffsetBackingStore.LEGACY_FILE_CONFIG, legacyOffsetFile)
+                .with(JdbcOffsetBackingStore.URL_CONFIG, offsetJdbcUrl)
+                .with(JdbcOffsetBackingStore.USER_CONFIG, offsetJdbcUser)
+                .with(JdbcOffsetBackingStore.PASSWORD_CONFIG, offsetJdbcPassword)
                 .with("offset.flush.interval.ms", offsetFlushInterval)
+                .with("max.batch.size", maxBatchSize)
+                .with("max.queue.size", maxQueueSize)
                 .with("name", "inventory-mysql-connector")
                 .with("database.server.name", serverName)
                 .with("database.server.id", serverId)
@@ -53,9 +99,20 @@ public class DebeziumConfig {
                 .with("database.password", dbPassword)
                 .with("database.include.list", dbName)
                 .with("table.include.list", dbName + ".inventory")
+                .with("message.key.columns", messageKeyColumns)
                 .with("include.schema.changes", "false")
                 .with("database.allowPublicKeyRetrieval", "true")
-                .with("database.history", "io.debezium.relational.history.MemoryDatabaseHistory")
+                .with("snapshot.mode", snapshotMode)
+                .with("schema.history.internal", CompactingFileSchemaHistory.class.getName())
+                .with(CompactingFileSchemaHistory.FILE_PATH, schemaHistoryFile)
+                .with(CompactingFileSchemaHistory.COMPACTION_MIN_AGE_MS, schemaHistoryCompactionMinAge)
+                .with(CompactingFileSchemaHistory.COMPACTION_THRESHOLD, schemaHistoryCompactionThreshold)
+                .with("schema.history.internal.store.only.captured.tables.ddl", "true")
+                .with("signal.data.collection", dbName + "." + IncrementalSnapshots.SIGNAL_TABLE)
+                .with("signal.enabled.channels", "source")
+                .with("incremental.snapshot.chunk.size", incrementalSnapshotChunkSize)
+                .with("notification.enabled.channels", "sink")
+                .with("notification.sink.topic.name", IncrementalSnapshots.NOTIFICATION_TOPIC)
                 .with("topic.prefix", "inventory-cdc")
                 .build();
     }
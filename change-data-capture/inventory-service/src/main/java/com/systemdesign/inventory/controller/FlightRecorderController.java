@@ -0,0 +1,27 @@
+package com.systemdesign.inventory.controller;
+
+import com.systemdesign.cdc.FlightRecorder;
+import com.systemdesign.cdc.FlightRecorder.Entry;
+import com.systemdesign.cdc.FlightRecorder.Stage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/flight-recorder")
+@RequiredArgsConstructor
+public class FlightRecorderController {
+
+    private final FlightRecorder flightRecorder;
+
+    // e.g. ?stage=PROCESSED&topic=order-created&key=42 for the reservation request of order 42
+    @GetMapping
+    public ResponseEntity<List<Entry>> getEntries(@RequestParam(required = false) Stage stage,
+                                                  @RequestParam(required = false) String topic,
+                                                  @RequestParam(required = false) String key,
+                                                  @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(flightRecorder.find(stage, topic, key, limit));
+    }
+}
@@ -0,0 +1,43 @@
+package com.systemdesign.inventory.controller;
+
+import com.systemdesign.inventory.cdc.IncrementalSnapshots;
+import com.systemdesign.inventory.cdc.IncrementalSnapshots.SnapshotProgress;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/snapshots")
+@RequiredArgsConstructor
+public class SnapshotController {
+
+    private final IncrementalSnapshots incrementalSnapshots;
+
+    public record SnapshotRequest(String table, String filter) {
+    }
+
+    @PostMapping
+    public ResponseEntity<SnapshotProgress> triggerSnapshot(@RequestBody SnapshotRequest request) {
+        try {
+            SnapshotProgress progress = incrementalSnapshots.trigger(request.table(), request.filter());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(progress);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<SnapshotProgress>> getSnapshots() {
+        return ResponseEntity.ok(incrementalSnapshots.findAll());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<SnapshotProgress> getSnapshot(@PathVariable String id) {
+        return incrementalSnapshots.find(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,24 @@
+package com.systemdesign.inventory.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A granted reservation whose stock decrement has not been written to products yet
+@Entity
+@Table(name = "reservation_journal")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationJournalEntry {
+    
+    @Id
+    private Long orderId;
+    
+    @Column(nullable = false)
+    private String productId;
+    
+    @Column(nullable = false)
+    private Integer quantity;
+}
@@ -0,0 +1,11 @@
+package com.systemdesign.inventory.event;
+
+import com.systemdesign.cdc.EventReader;
+
+// Row of the orders table as published on order-created
+public record OrderCreatedEvent(String operation, Long orderId, String productId, Integer quantity) {
+
+    public static final EventReader<OrderCreatedEvent> READER = EventReader.of(row -> new OrderCreatedEvent(
+            row.operation(), row.getLong("id"), row.getString("product_id"), row.getInt("quantity")),
+            "id", "product_id", "quantity");
+}
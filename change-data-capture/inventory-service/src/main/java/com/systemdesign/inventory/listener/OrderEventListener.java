@@ -1,37 +1,113 @@
 package com.systemdesign.inventory.listener;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.systemdesign.cdc.EventIds;
+import com.systemdesign.cdc.FlightRecorder;
+import com.systemdesign.cdc.RateLimitedLog;
+import com.systemdesign.cdc.listener.KeyOrderedExecutor;
+import com.systemdesign.idempotency.ProcessedEventFilter;
+import com.systemdesign.inventory.event.OrderCreatedEvent;
 import com.systemdesign.inventory.service.InventoryService;
+import com.systemdesign.inventory.service.ReservationRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class OrderEventListener {
 
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(log);
+
     private final InventoryService inventoryService;
-    private final ObjectMapper objectMapper;
+    private final KeyOrderedExecutor orderCreatedExecutor;
+    private final ProcessedEventFilter processedEventFilter;
+    private final FlightRecorder flightRecorder;
 
-    @KafkaListener(topics = "order-created", groupId = "inventory-service-group")
-    public void handleOrderCreated(String message) {
+    @KafkaListener(id = "orderCreated", topics = "order-created", groupId = "inventory-service-group",
+            containerFactory = "keyOrderedContainerFactory",
+            autoStartup = "#{!${consumer.order-created.batch.enabled}}")
+    public void handleOrderCreated(ConsumerRecord<String, OrderCreatedEvent> record, Acknowledgment ack)
+            throws InterruptedException {
+        String eventId = EventIds.fromHeaders(record.headers());
+        orderCreatedExecutor.execute(record, () -> applyOrderCreated(record.value(), eventId), ack);
+    }
+
+    // Batch mode for order-created bursts: the whole poll is reserved in one transaction
+    @KafkaListener(id = "orderCreatedBatch", topics = "order-created", groupId = "inventory-service-group",
+            containerFactory = "batchContainerFactory",
+            autoStartup = "${consumer.order-created.batch.enabled}",
+            properties = "max.poll.records:${consumer.order-created.batch.max.records}")
+    public void handleOrderCreatedBatch(List<ConsumerRecord<String, OrderCreatedEvent>> records) {
+        log.debug("Received {} order created events", records.size());
+        List<ReservationRequest> requests = new ArrayList<>(records.size());
+        Set<String> batchEventIds = new HashSet<>();
+        for (ConsumerRecord<String, OrderCreatedEvent> record : records) {
+            // Undecodable events arrive as null, the deserializer already logged them
+            if (record.value() == null) {
+                continue;
+            }
+            String eventId = EventIds.fromHeaders(record.headers());
+            if (processedEventFilter.isDuplicate(eventId) || (eventId != null && !batchEventIds.add(eventId))) {
+                log.debug("Skipping already processed order created event {}", eventId);
+                continue;
+            }
+            requests.add(toReservationRequest(record.value(), eventId));
+        }
+
+        if (!requests.isEmpty()) {
+            try {
+                inventoryService.reserveInventoryBatch(requests);
+            } catch (DuplicateKeyException e) {
+                // A duplicate slipped past the filter and rolled the batch back, redo it one by one
+                log.warn("Order created batch contained an already processed event, retrying per event");
+                for (ReservationRequest request : requests) {
+                    try {
+                        reserve(request);
+                    } catch (Exception retryError) {
+                        rateLimitedLog.error("Error processing order created event", retryError);
+                    }
+                }
+            }
+        }
+        for (ConsumerRecord<String, OrderCreatedEvent> record : records) {
+            flightRecorder.record(FlightRecorder.Stage.PROCESSED, record, "processed in batch");
+        }
+    }
+
+    private void applyOrderCreated(OrderCreatedEvent event, String eventId) {
+        if (event == null) {
+            return;
+        }
+        if (processedEventFilter.isDuplicate(eventId)) {
+            log.debug("Skipping already processed order created event {}", eventId);
+            return;
+        }
+
+        // A failure propagates to the executor, which dead-letters the record before acking it
+        reserve(toReservationRequest(event, eventId));
+    }
+
+    private void reserve(ReservationRequest request) {
         try {
-            log.info("Received order created event: {}", message);
-            JsonNode jsonNode = objectMapper.readTree(message);
-            JsonNode data = jsonNode.get("data");
-            
-            Long orderId = data.get("id").asLong();
-            String productId = data.get("product_id").asText();
-            Integer quantity = data.get("quantity").asInt();
-            
             // Reserve inventory for the order
-            inventoryService.reserveInventory(orderId, productId, quantity);
-            
-        } catch (Exception e) {
-            log.error("Error processing order created event", e);
+            inventoryService.reserveInventory(request.orderId(), request.productId(), request.quantity(),
+                    request.eventId());
+        } catch (DuplicateKeyException e) {
+            log.debug("Order created event {} was already processed", request.eventId());
         }
     }
+
+    private ReservationRequest toReservationRequest(OrderCreatedEvent event, String eventId) {
+        return new ReservationRequest(event.orderId(), event.productId(), event.quantity(), eventId);
+    }
 }
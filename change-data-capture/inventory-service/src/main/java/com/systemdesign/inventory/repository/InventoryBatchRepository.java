@@ -0,0 +1,71 @@
+package com.systemdesign.inventory.repository;
+
+import com.systemdesign.inventory.entity.Inventory;
+import com.systemdesign.inventory.entity.ReservationJournalEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Plain JDBC batches: Hibernate cannot batch Inventory inserts because of its IDENTITY ids
+@Repository
+@RequiredArgsConstructor
+public class InventoryBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void decrementStock(Map<String, Integer> reservedByProduct) {
+        List<Object[]> args = reservedByProduct.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList();
+        jdbcTemplate.batchUpdate(
+                "UPDATE products SET available_stock = available_stock - ? WHERE product_id = ?", args);
+    }
+
+    public void insertAll(List<Inventory> inventories) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO inventory (order_id, product_id, quantity_reserved, available_quantity, status, "
+                        + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                inventories, inventories.size(), (ps, inventory) -> {
+                    ps.setLong(1, inventory.getOrderId());
+                    ps.setString(2, inventory.getProductId());
+                    ps.setInt(3, inventory.getQuantityReserved());
+                    ps.setInt(4, inventory.getAvailableQuantity());
+                    ps.setString(5, inventory.getStatus().name());
+                    ps.setTimestamp(6, Timestamp.valueOf(inventory.getCreatedAt()));
+                    ps.setTimestamp(7, Timestamp.valueOf(inventory.getUpdatedAt()));
+                });
+    }
+
+    public void insertJournal(List<ReservationJournalEntry> entries) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO reservation_journal (order_id, product_id, quantity) VALUES (?, ?, ?)",
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setLong(1, entry.getOrderId());
+                    ps.setString(2, entry.getProductId());
+                    ps.setInt(3, entry.getQuantity());
+                });
+    }
+
+    public Map<String, Integer> journaledByProduct() {
+        Map<String, Integer> journaled = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT product_id, SUM(quantity) FROM reservation_journal GROUP BY product_id",
+                rs -> {
+                    journaled.put(rs.getString(1), rs.getInt(2));
+                });
+        return journaled;
+    }
+
+    public void deleteJournal(List<ReservationJournalEntry> entries) {
+        jdbcTemplate.batchUpdate("DELETE FROM reservation_journal WHERE order_id = ?",
+                entries, entries.size(), (ps, entry) -> ps.setLong(1, entry.getOrderId()));
+    }
+
+    public void clearJournal() {
+        jdbcTemplate.update("DELETE FROM reservation_journal");
+    }
+}
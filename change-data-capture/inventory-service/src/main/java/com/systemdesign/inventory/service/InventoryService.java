@@ -1,8 +1,12 @@
 package com.systemdesign.inventory.service;
 
+import com.systemdesign.cdc.RateLimitedLog;
+import com.systemdesign.idempotency.ProcessedEventFilter;
 import com.systemdesign.inventory.entity.Inventory;
 import com.systemdesign.inventory.entity.InventoryStatus;
 import com.systemdesign.inventory.entity.Product;
+import com.systemdesign.inventory.entity.ReservationJournalEntry;
+import com.systemdesign.inventory.repository.InventoryBatchRepository;
 import com.systemdesign.inventory.repository.InventoryRepository;
 import com.systemdesign.inventory.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
@@ -10,16 +14,37 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class InventoryService {
 
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(log);
+
     private final InventoryRepository inventoryRepository;
     private final ProductRepository productRepository;
+    private final InventoryBatchRepository inventoryBatchRepository;
+    private final StockReservationEngine reservationEngine;
+    private final ProcessedEventFilter processedEventFilter;
 
+    // eventId is the triggering CDC event, recorded in this transaction so a redelivery can not reserve twice
     @Transactional
-    public Inventory reserveInventory(Long orderId, String productId, Integer quantity) {
+    public Inventory reserveInventory(Long orderId, String productId, Integer quantity, String eventId) {
+        processedEventFilter.record(eventId);
+
+        if (reservationEngine.isEnabled()) {
+            return reserveWithEngine(orderId, productId, quantity);
+        }
+
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
@@ -34,17 +59,146 @@ public class InventoryService {
             productRepository.save(product);
             
             inventory.setStatus(InventoryStatus.RESERVED);
-            log.info("Inventory reserved for Order {} - Product: {}, Quantity: {}", 
+            log.debug("Inventory reserved for Order {} - Product: {}, Quantity: {}", 
                     orderId, productId, quantity);
         } else {
             inventory.setStatus(InventoryStatus.FAILED);
-            log.warn("Insufficient inventory for Order {} - Product: {}, Requested: {}, Available: {}", 
+            rateLimitedLog.warn("Insufficient inventory for Order {} - Product: {}, Requested: {}, Available: {}", 
                     orderId, productId, quantity, product.getAvailableStock());
         }
 
         return inventoryRepository.save(inventory);
     }
 
+    // Same decisions as reserveInventory applied to a whole burst: one product read, reservations
+    // applied in memory in arrival order, then JDBC-batched writes, all in one transaction. Only events
+    // that produced an inventory row are recorded as processed; one for an unknown product is skipped
+    // here, like the single path rolls it back, so a redelivery tries it again.
+    @Transactional
+    public List<Inventory> reserveInventoryBatch(List<ReservationRequest> requests) {
+        List<String> processedEventIds = new ArrayList<>(requests.size());
+        List<Inventory> inventories = reservationEngine.isEnabled()
+                ? reserveBatchWithEngine(requests, processedEventIds)
+                : reserveBatchWithProducts(requests, processedEventIds);
+        processedEventFilter.recordAll(processedEventIds);
+        return inventories;
+    }
+
+    private List<Inventory> reserveBatchWithProducts(List<ReservationRequest> requests,
+                                                     List<String> processedEventIds) {
+        Set<String> productIds = requests.stream()
+                .map(ReservationRequest::productId)
+                .collect(Collectors.toSet());
+        Map<String, Integer> stock = new HashMap<>();
+        for (Product product : productRepository.findAllForUpdate(productIds)) {
+            stock.put(product.getProductId(), product.getAvailableStock());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Inventory> inventories = new ArrayList<>(requests.size());
+        Map<String, Integer> reservedByProduct = new LinkedHashMap<>();
+        for (ReservationRequest request : requests) {
+            Integer available = stock.get(request.productId());
+            if (available == null) {
+                rateLimitedLog.error("Product not found for Order {} - Product: {}", request.orderId(), request.productId());
+                continue;
+            }
+
+            Inventory inventory = new Inventory();
+            inventory.setOrderId(request.orderId());
+            inventory.setProductId(request.productId());
+            inventory.setQuantityReserved(request.quantity());
+            inventory.setAvailableQuantity(available);
+            inventory.setCreatedAt(now);
+            inventory.setUpdatedAt(now);
+
+            if (available >= request.quantity()) {
+                stock.put(request.productId(), available - request.quantity());
+                reservedByProduct.merge(request.productId(), request.quantity(), Integer::sum);
+                inventory.setStatus(InventoryStatus.RESERVED);
+            } else {
+                inventory.setStatus(InventoryStatus.FAILED);
+                rateLimitedLog.warn("Insufficient inventory for Order {} - Product: {}, Requested: {}, Available: {}",
+                        request.orderId(), request.productId(), request.quantity(), available);
+            }
+            inventories.add(inventory);
+            if (request.eventId() != null) {
+                processedEventIds.add(request.eventId());
+            }
+        }
+
+        inventoryBatchRepository.decrementStock(reservedByProduct);
+        inventoryBatchRepository.insertAll(inventories);
+        log.debug("Inventory batch processed - Orders: {}, Products: {}", inventories.size(), productIds.size());
+        return inventories;
+    }
+
+    // Stock is granted in memory and journaled; products is updated later by the engine's flush
+    private Inventory reserveWithEngine(Long orderId, String productId, Integer quantity) {
+        StockReservationEngine.Reservation reservation = reservationEngine.reserve(orderId, productId, quantity);
+
+        Inventory inventory = new Inventory();
+        inventory.setOrderId(orderId);
+        inventory.setProductId(productId);
+        inventory.setQuantityReserved(quantity);
+        inventory.setAvailableQuantity((int) reservation.availableBefore());
+
+        if (reservation.granted()) {
+            inventoryBatchRepository.insertJournal(List.of(new ReservationJournalEntry(orderId, productId, quantity)));
+            inventory.setStatus(InventoryStatus.RESERVED);
+            log.debug("Inventory reserved for Order {} - Product: {}, Quantity: {}",
+                    orderId, productId, quantity);
+        } else {
+            inventory.setStatus(InventoryStatus.FAILED);
+            rateLimitedLog.warn("Insufficient inventory for Order {} - Product: {}, Requested: {}, Available: {}",
+                    orderId, productId, quantity, reservation.availableBefore());
+        }
+
+        return inventoryRepository.save(inventory);
+    }
+
+    private List<Inventory> reserveBatchWithEngine(List<ReservationRequest> requests,
+                                                   List<String> processedEventIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Inventory> inventories = new ArrayList<>(requests.size());
+        List<ReservationJournalEntry> journal = new ArrayList<>(requests.size());
+        for (ReservationRequest request : requests) {
+            StockReservationEngine.Reservation reservation;
+            try {
+                reservation = reservationEngine.reserve(request.orderId(), request.productId(), request.quantity());
+            } catch (RuntimeException e) {
+                rateLimitedLog.error("Product not found for Order {} - Product: {}", request.orderId(), request.productId());
+                continue;
+            }
+
+            Inventory inventory = new Inventory();
+            inventory.setOrderId(request.orderId());
+            inventory.setProductId(request.productId());
+            inventory.setQuantityReserved(request.quantity());
+            inventory.setAvailableQuantity((int) reservation.availableBefore());
+            inventory.setCreatedAt(now);
+            inventory.setUpdatedAt(now);
+
+            if (reservation.granted()) {
+                journal.add(new ReservationJournalEntry(request.orderId(), request.productId(), request.quantity()));
+                inventory.setStatus(InventoryStatus.RESERVED);
+            } else {
+                inventory.setStatus(InventoryStatus.FAILED);
+                rateLimitedLog.warn("Insufficient inventory for Order {} - Product: {}, Requested: {}, Available: {}",
+                        request.orderId(), request.productId(), request.quantity(), reservation.availableBefore());
+            }
+            inventories.add(inventory);
+            if (request.eventId() != null) {
+                processedEventIds.add(request.eventId());
+            }
+        }
+
+        inventoryBatchRepository.insertJournal(journal);
+        inventoryBatchRepository.insertAll(inventories);
+        log.debug("Inventory batch processed - Orders: {}", inventories.size());
+        return inventories;
+    }
+
     public Inventory getInventoryByOrderId(Long orderId) {
         return inventoryRepository.findByOrderId(orderId)
                 .orElseThrow(() -> new RuntimeException("Inventory not found for order"));
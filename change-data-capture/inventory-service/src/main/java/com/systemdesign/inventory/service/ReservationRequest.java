@@ -0,0 +1,4 @@
+package com.systemdesign.inventory.service;
+
+public record ReservationRequest(Long orderId, String productId, Integer quantity, String eventId) {
+}
@@ -0,0 +1,169 @@
+package com.systemdesign.inventory.service;
+
+import com.systemdesign.inventory.entity.Product;
+import com.systemdesign.inventory.entity.ReservationJournalEntry;
+import com.systemdesign.inventory.repository.InventoryBatchRepository;
+import com.systemdesign.inventory.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process owner of product stock. Reservations are granted on striped in-memory counters, so hot
+ * products never wait on a products row lock. Each granted reservation is journaled in the same
+ * transaction as its Inventory row, and a write-behind flush folds committed journal entries into
+ * products.available_stock. On startup any entries left by a crash are applied before stock is loaded.
+ * Assumes a single inventory-service instance owns the products table.
+ */
+@Slf4j
+@Component
+public class StockReservationEngine {
+
+    private static final int MAX_FLUSH_SIZE = 5000;
+
+    private final ProductRepository productRepository;
+    private final InventoryBatchRepository inventoryBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int stripes;
+
+    private final Map<String, StripedStock> stocks = new ConcurrentHashMap<>();
+    private final Queue<ReservationJournalEntry> unflushed = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public StockReservationEngine(ProductRepository productRepository,
+                                  InventoryBatchRepository inventoryBatchRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${inventory.reservation.engine.enabled}") boolean enabled,
+                                  @Value("${inventory.reservation.engine.stripes}") int stripes) {
+        this.productRepository = productRepository;
+        this.inventoryBatchRepository = inventoryBatchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.stripes = stripes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public record Reservation(boolean granted, long availableBefore) {
+    }
+
+    // Must be called inside the transaction that records the reservation: a rollback gives the
+    // stock back, a commit queues the decrement for the next flush
+    public Reservation reserve(Long orderId, String productId, int quantity) {
+        StripedStock stock = stocks.computeIfAbsent(productId, this::loadStock);
+        if (stock == null) {
+            throw new RuntimeException("Product not found");
+        }
+
+        long availableBefore = stock.available();
+        boolean granted = stock.tryReserve(quantity);
+        if (granted) {
+            ReservationJournalEntry entry = new ReservationJournalEntry(orderId, productId, quantity);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        unflushed.add(entry);
+                    } else {
+                        stock.release(quantity);
+                    }
+                }
+            });
+        }
+        return new Reservation(granted, availableBefore);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.reservation.engine.flush.interval.ms}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<ReservationJournalEntry> batch = new ArrayList<>();
+            ReservationJournalEntry entry;
+            while (batch.size() < MAX_FLUSH_SIZE && (entry = unflushed.poll()) != null) {
+                batch.add(entry);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            Map<String, Integer> reservedByProduct = new LinkedHashMap<>();
+            for (ReservationJournalEntry reserved : batch) {
+                reservedByProduct.merge(reserved.getProductId(), reserved.getQuantity(), Integer::sum);
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    inventoryBatchRepository.decrementStock(reservedByProduct);
+                    inventoryBatchRepository.deleteJournal(batch);
+                });
+            } catch (RuntimeException e) {
+                unflushed.addAll(batch);
+                log.error("Failed to flush {} reservations to products, will retry", batch.size(), e);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PostConstruct
+    void recover() {
+        // Journal entries still present were committed but never folded into products; applied even with
+        // the engine off, so switching it off after a crash does not give the stock back
+        Map<String, Integer> pending = transactionTemplate.execute(status -> {
+            Map<String, Integer> journaled = inventoryBatchRepository.journaledByProduct();
+            inventoryBatchRepository.decrementStock(journaled);
+            inventoryBatchRepository.clearJournal();
+            return journaled;
+        });
+        if (!enabled) {
+            if (!pending.isEmpty()) {
+                log.info("Applied {} unflushed product decrements left by the stock reservation engine",
+                        pending.size());
+            }
+            return;
+        }
+        for (Product product : productRepository.findAll()) {
+            stocks.put(product.getProductId(), new StripedStock(product.getAvailableStock(), stripes));
+        }
+        log.info("Stock reservation engine loaded {} products, recovered {} unflushed product decrements",
+                stocks.size(), pending.size());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        while (enabled && !unflushed.isEmpty()) {
+            int before = unflushed.size();
+            flush();
+            if (unflushed.size() >= before) {
+                // Flush is failing, the journal still has the entries for the next start
+                break;
+            }
+        }
+    }
+
+    private StripedStock loadStock(String productId) {
+        return productRepository.findById(productId)
+                .map(product -> new StripedStock(product.getAvailableStock(), stripes))
+                .orElse(null);
+    }
+}
@@ -0,0 +1,76 @@
+package com.systemdesign.inventory.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Stock of one product split over cache-line padded stripes so concurrent reservations CAS on different
+// counters. No stripe ever goes negative, so the sum can never be oversold.
+class StripedStock {
+
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+
+    StripedStock(long stock, int stripes) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        spread(stock);
+    }
+
+    // Added rather than set, releases may land on a stripe while the slow path holds the lock
+    private void spread(long stock) {
+        for (int i = 0; i < stripes; i++) {
+            cells.addAndGet(i * PADDING, stock / stripes + (i < stock % stripes ? 1 : 0));
+        }
+    }
+
+    boolean tryReserve(int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int cell = ((start + i) % stripes) * PADDING;
+            long current = cells.get(cell);
+            while (current >= quantity) {
+                if (cells.compareAndSet(cell, current, current - quantity)) {
+                    return true;
+                }
+                current = cells.get(cell);
+            }
+        }
+        return reserveAcrossStripes(quantity);
+    }
+
+    // Slow path when no single stripe holds enough: gather every stripe under the lock so the
+    // decision is exact, then spread the remainder evenly again so later reservations stay on the fast path
+    private boolean reserveAcrossStripes(int quantity) {
+        rebalanceLock.lock();
+        try {
+            long total = 0;
+            for (int i = 0; i < stripes; i++) {
+                total += cells.getAndSet(i * PADDING, 0);
+            }
+            boolean granted = total >= quantity;
+            if (granted) {
+                total -= quantity;
+            }
+            spread(total);
+            return granted;
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    void release(int quantity) {
+        cells.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * PADDING, quantity);
+    }
+
+    long available() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return total;
+    }
+}
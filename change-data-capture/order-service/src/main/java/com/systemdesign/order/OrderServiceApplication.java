@@ -1,9 +1,14 @@
 package com.systemdesign.order;
 
+import com.systemdesign.cdc.CdcConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@Import(CdcConfiguration.class)
 public class OrderServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,148 @@
+package com.systemdesign.order.cdc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.connect.data.Struct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incremental snapshots through Debezium's signal table. A request inserts an execute-snapshot signal;
+ * the engine picks it up from the binlog and re-reads the table in primary key chunks between its
+ * streaming batches, emitting the rows as "r" events. Progress comes back as notifications on the
+ * engine's sink channel, which the relay hands to {@link #onNotification(Struct)} instead of Kafka.
+ */
+@Slf4j
+@Component
+public class IncrementalSnapshots {
+
+    public static final String SIGNAL_TABLE = "debezium_signal";
+    public static final String CAPTURED_TABLE = "orders";
+    // Only seen by the relay, notifications are not forwarded to Kafka
+    public static final String NOTIFICATION_TOPIC = "debezium-notifications";
+
+    // Debezium writes its chunk watermarks into the same table with positional inserts, so the
+    // column order matters
+    private static final String CREATE_SIGNAL_TABLE = "CREATE TABLE IF NOT EXISTS " + SIGNAL_TABLE
+            + " (id VARCHAR(42) NOT NULL PRIMARY KEY, type VARCHAR(32) NOT NULL, data VARCHAR(2048) NULL)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final String dbName;
+    private final boolean outboxEnabled;
+    private final Map<String, SnapshotProgress> progress = new ConcurrentHashMap<>();
+
+    public IncrementalSnapshots(JdbcTemplate jdbcTemplate,
+                                ObjectMapper objectMapper,
+                                @Value("${debezium.connector.database.dbname}") String dbName,
+                                @Value("${order.outbox.enabled}") boolean outboxEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.dbName = dbName;
+        this.outboxEnabled = outboxEnabled;
+    }
+
+    public record SnapshotProgress(String id, String table, String filter, String status, long rowsScanned,
+                                   String lastProcessedKey, String maximumKey, Instant requestedAt, Instant updatedAt) {
+
+        SnapshotProgress with(String newStatus, long newRowsScanned, String newLastProcessedKey, String newMaximumKey) {
+            return new SnapshotProgress(id, table, filter, newStatus, newRowsScanned, newLastProcessedKey,
+                    newMaximumKey, requestedAt, Instant.now());
+        }
+    }
+
+    @PostConstruct
+    void createSignalTable() {
+        jdbcTemplate.execute(CREATE_SIGNAL_TABLE);
+    }
+
+    public String signalDataCollection() {
+        return dbName + "." + SIGNAL_TABLE;
+    }
+
+    public boolean isSignalTable(Struct source) {
+        return source != null && SIGNAL_TABLE.equals(source.getString("table"));
+    }
+
+    /**
+     * Requests an incremental snapshot of the captured table, optionally limited by a SQL condition on
+     * its columns (for example {@code id > 1000}).
+     */
+    public SnapshotProgress trigger(String table, String filter) {
+        if (table == null) {
+            throw new IllegalArgumentException("No table given");
+        }
+        String name = table.startsWith(dbName + ".") ? table.substring(dbName.length() + 1) : table;
+        if (!CAPTURED_TABLE.equals(name)) {
+            throw new IllegalArgumentException("Table " + table + " is not captured by this service");
+        }
+        if (outboxEnabled) {
+            throw new IllegalArgumentException("Table " + table + " is not captured in outbox mode");
+        }
+        String dataCollection = dbName + "." + CAPTURED_TABLE;
+
+        ObjectNode data = objectMapper.createObjectNode();
+        data.put("type", "incremental");
+        data.putArray("data-collections").add(dataCollection);
+        if (filter != null && !filter.isBlank()) {
+            data.putArray("additional-conditions").addObject()
+                    .put("data-collection", dataCollection)
+                    .put("filter", filter);
+        }
+
+        String id = UUID.randomUUID().toString();
+        SnapshotProgress requested = new SnapshotProgress(id, dataCollection, filter, "REQUESTED", 0, null, null,
+                Instant.now(), Instant.now());
+        progress.put(id, requested);
+        jdbcTemplate.update("INSERT INTO " + SIGNAL_TABLE + " (id, type, data) VALUES (?, ?, ?)",
+                id, "execute-snapshot", data.toString());
+        log.info("Requested incremental snapshot {} of {} with filter {}", id, dataCollection, filter);
+        return requested;
+    }
+
+    public Optional<SnapshotProgress> find(String id) {
+        return Optional.ofNullable(progress.get(id));
+    }
+
+    public List<SnapshotProgress> findAll() {
+        List<SnapshotProgress> all = new ArrayList<>(progress.values());
+        all.sort(Comparator.comparing(SnapshotProgress::requestedAt).reversed());
+        return all;
+    }
+
+    // Called on the engine thread for every record of the notification topic
+    public void onNotification(Struct notification) {
+        if (!"Incremental Snapshot".equals(notification.getString("aggregate_type"))) {
+            return;
+        }
+        String id = notification.getString("id");
+        String type = notification.getString("type");
+        Map<String, String> data = notification.getMap("additional_data");
+        progress.compute(id, (key, current) -> {
+            SnapshotProgress base = current != null ? current : new SnapshotProgress(id,
+                    data.get("data_collections"), null, type, 0, null, null, Instant.now(), Instant.now());
+            return switch (type) {
+                case "IN_PROGRESS" -> base.with(type, base.rowsScanned(),
+                        data.get("last_processed_key"), data.get("maximum_key"));
+                case "TABLE_SCAN_COMPLETED" -> base.with(type,
+                        Long.parseLong(data.getOrDefault("total_rows_scanned", "0")),
+                        base.lastProcessedKey(), base.maximumKey());
+                // A table scan completion reports the final row count, keep it through COMPLETED
+                default -> base.with(type, base.rowsScanned(), base.lastProcessedKey(), base.maximumKey());
+            };
+        });
+        log.info("Incremental snapshot {} is {}", id, type);
+    }
+}
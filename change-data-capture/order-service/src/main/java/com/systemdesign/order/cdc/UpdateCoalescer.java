@@ -0,0 +1,177 @@
+package com.systemdesign.order.cdc;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.connect.data.Struct;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalescing window for update events. An update is held per message key and replaced by later
+ * updates of the same key; it is sent once the key has been quiet for the window, or at the latest
+ * max latency after its first held update, so a burst of status changes leaves as one event with the
+ * latest state. Creates, deletes and snapshot reads are never held: the relay flushes the key first
+ * so the topic keeps the per-key order. The ack returned for a held update completes when the update
+ * that finally went out for its key is acknowledged. A window of 0 sends every update right away.
+ * The before image of the first held update is kept, so the relay can diff replacements from it.
+ * Sends happen under the lock and can block on the relay's in-flight caps, so it is a lock rather
+ * than a monitor, which would pin a virtual thread's carrier while blocked.
+ */
+public class UpdateCoalescer {
+
+    private final Sender sender;
+    private final long windowNanos;
+    private final long maxLatencyNanos;
+    private final Map<String, Held> held = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean closed;
+
+    public UpdateCoalescer(Sender sender, long windowMs, long maxLatencyMs) {
+        this.sender = sender;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(windowMs, maxLatencyMs));
+    }
+
+    @FunctionalInterface
+    public interface Sender {
+        CompletableFuture<?> send(ProducerRecord<String, byte[]> record) throws InterruptedException;
+    }
+
+    // Reentrant, the relay holds it across reading and replacing a key's held update
+    public ReentrantLock lock() {
+        return lock;
+    }
+
+    public boolean isEnabled() {
+        return windowNanos > 0;
+    }
+
+    // True while the update behind this ack is still held, i.e. not sent yet
+    public static boolean isHeld(CompletableFuture<?> ack) {
+        return ack instanceof HeldAck heldAck && !heldAck.sent;
+    }
+
+    public CompletableFuture<?> offer(ProducerRecord<String, byte[]> update, Struct before)
+            throws InterruptedException {
+        lock.lock();
+        try {
+            if (closed || windowNanos == 0 || update.key() == null) {
+                return sender.send(update);
+            }
+            long now = System.nanoTime();
+            Held entry = held.computeIfAbsent(update.key(), key -> new Held(now, before));
+            entry.latest = update;
+            entry.lastNanos = now;
+            return entry.ack;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Struct heldBefore(String key) {
+        lock.lock();
+        try {
+            Held entry = key == null ? null : held.get(key);
+            return entry == null ? null : entry.before;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Drops the held update of a key without sending it, its records count as relayed
+    public void discard(String key) {
+        lock.lock();
+        try {
+            Held entry = key == null ? null : held.remove(key);
+            if (entry != null) {
+                entry.ack.sent = true;
+                entry.ack.complete(null);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void flush(String key) throws InterruptedException {
+        lock.lock();
+        try {
+            Held entry = key == null ? null : held.remove(key);
+            if (entry != null) {
+                send(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Sends the keys whose window or max latency has passed
+    public void flushDue() throws InterruptedException {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            Iterator<Held> entries = held.values().iterator();
+            while (entries.hasNext()) {
+                Held entry = entries.next();
+                if (now - entry.lastNanos >= windowNanos || now - entry.firstNanos >= maxLatencyNanos) {
+                    entries.remove();
+                    send(entry);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Sends everything still held; later updates are no longer held
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            for (Held entry : held.values()) {
+                send(entry);
+            }
+            held.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void send(Held entry) throws InterruptedException {
+        entry.ack.sent = true;
+        try {
+            sender.send(entry.latest).whenComplete((result, error) -> {
+                if (error != null) {
+                    entry.ack.completeExceptionally(error);
+                } else {
+                    entry.ack.complete(result);
+                }
+            });
+        } catch (InterruptedException | RuntimeException e) {
+            entry.ack.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static final class Held {
+
+        private final long firstNanos;
+        private final Struct before;
+        private final HeldAck ack = new HeldAck();
+        private ProducerRecord<String, byte[]> latest;
+        private long lastNanos;
+
+        private Held(long firstNanos, Struct before) {
+            this.firstNanos = firstNanos;
+            this.before = before;
+        }
+    }
+
+    private static final class HeldAck extends CompletableFuture<Object> {
+
+        private volatile boolean sent;
+    }
+}
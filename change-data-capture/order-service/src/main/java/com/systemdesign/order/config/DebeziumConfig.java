@@ -1,5 +1,10 @@
 package com.systemdesign.order.config;
 
+import com.systemdesign.cdc.CompactingFileSchemaHistory;
+import com.systemdesign.cdc.JdbcOffsetBackingStore;
+import com.systemdesign.cdc.MappedFileOffsetBackingStore;
+import com.systemdesign.order.cdc.IncrementalSnapshots;
+import com.systemdesign.order.service.OrderOutbox;
 import io.debezium.config.Configuration;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -34,16 +39,67 @@ public class DebeziumConfig {
     @Value("${debezium.connector.offset.file}")
     private String offsetFile;
 
+    @Value("${debezium.connector.offset.legacy.file}")
+    private String legacyOffsetFile;
+
     @Value("${debezium.connector.offset.flush.interval.ms}")
     private String offsetFlushInterval;
 
+    @Value("${spring.datasource.url}")
+    private String offsetJdbcUrl;
+
+    @Value("${spring.datasource.username}")
+    private String offsetJdbcUser;
+
+    @Value("${spring.datasource.password}")
+    private String offsetJdbcPassword;
+
+    @Value("${debezium.connector.schema.history.file}")
+    private String schemaHistoryFile;
+
+    @Value("${debezium.connector.schema.history.compaction.min.age.ms}")
+    private String schemaHistoryCompactionMinAge;
+
+    @Value("${debezium.connector.schema.history.compaction.threshold}")
+    private String schemaHistoryCompactionThreshold;
+
+    @Value("${debezium.connector.snapshot.mode}")
+    private String snapshotMode;
+
+    @Value("${debezium.connector.incremental.snapshot.chunk.size}")
+    private String incrementalSnapshotChunkSize;
+
+    @Value("${debezium.connector.message.key.columns}")
+    private String messageKeyColumns;
+
+    @Value("${debezium.connector.max.batch.size}")
+    private String maxBatchSize;
+
+    @Value("${debezium.connector.max.queue.size}")
+    private String maxQueueSize;
+
+    @Value("${order.outbox.enabled}")
+    private boolean outboxEnabled;
+
+    @Value("${debezium.relay.coalesce.window.ms}")
+    private long coalesceWindowMs;
+
+    @Value("${debezium.relay.coalesce.max.latency.ms}")
+    private long coalesceMaxLatencyMs;
+
     @Bean
     public Configuration debeziumConfiguration() {
         return Configuration.create()
                 .with("connector.class", "io.debezium.connector.mysql.MySqlConnector")
                 .with("offset.storage", offsetStorage)
                 .with("offset.storage.file.filename", offsetFile)
+                .with(MappedFileOffsetBackingStore.LEGACY_FILE_CONFIG, legacyOffsetFile)
+                .with(JdbcOffsetBackingStore.URL_CONFIG, offsetJdbcUrl)
+                .with(JdbcOffsetBackingStore.USER_CONFIG, offsetJdbcUser)
+                .with(JdbcOffsetBackingStore.PASSWORD_CONFIG, offsetJdbcPassword)
                 .with("offset.flush.interval.ms", offsetFlushInterval)
+                .with("max.batch.size", maxBatchSize)
+                .with("max.queue.size", maxQueueSize)
                 .with("name", "order-mysql-connector")
                 .with("database.server.name", serverName)
                 .with("database.server.id", serverId)
@@ -52,11 +108,26 @@ public class DebeziumConfig {
                 .with("database.user", dbUser)
                 .with("database.password", dbPassword)
                 .with("database.include.list", dbName)
-                .with("table.include.list", dbName + ".orders")
+                // Outbox mode publishes the service's own compact events instead of the orders row images
+                .with("table.include.list", dbName + "." + (outboxEnabled ? OrderOutbox.TABLE : "orders"))
+                .with("message.key.columns", messageKeyColumns)
                 .with("include.schema.changes", "false")
                 .with("database.allowPublicKeyRetrieval", "true")
-                .with("database.history", "io.debezium.relational.history.MemoryDatabaseHistory")
+                .with("snapshot.mode", snapshotMode)
+                .with("schema.history.internal", CompactingFileSchemaHistory.class.getName())
+                .with(CompactingFileSchemaHistory.FILE_PATH, schemaHistoryFile)
+                .with(CompactingFileSchemaHistory.COMPACTION_MIN_AGE_MS, schemaHistoryCompactionMinAge)
+                .with(CompactingFileSchemaHistory.COMPACTION_THRESHOLD, schemaHistoryCompactionThreshold)
+                .with("schema.history.internal.store.only.captured.tables.ddl", "true")
+                .with("signal.data.collection", dbName + "." + IncrementalSnapshots.SIGNAL_TABLE)
+                .with("signal.enabled.channels", "source")
+                .with("incremental.snapshot.chunk.size", incrementalSnapshotChunkSize)
+                .with("notification.enabled.channels", "sink")
+                .with("notification.sink.topic.name", IncrementalSnapshots.NOTIFICATION_TOPIC)
                 .with("topic.prefix", "order-cdc")
+                // A coalesced update is marked by the batch after its flush; heartbeats bring that batch
+                // when the captured tables are quiet
+                .with("heartbeat.interval.ms", coalesceWindowMs > 0 ? coalesceMaxLatencyMs : 0)
                 .build();
     }
 }
@@ -0,0 +1,27 @@
+package com.systemdesign.order.controller;
+
+import com.systemdesign.cdc.FlightRecorder;
+import com.systemdesign.cdc.FlightRecorder.Entry;
+import com.systemdesign.cdc.FlightRecorder.Stage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/flight-recorder")
+@RequiredArgsConstructor
+public class FlightRecorderController {
+
+    private final FlightRecorder flightRecorder;
+
+    // e.g. ?stage=KAFKA_OUT&topic=order-updated&key=42 for what the relay sent for order 42
+    @GetMapping
+    public ResponseEntity<List<Entry>> getEntries(@RequestParam(required = false) Stage stage,
+                                                  @RequestParam(required = false) String topic,
+                                                  @RequestParam(required = false) String key,
+                                                  @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(flightRecorder.find(stage, topic, key, limit));
+    }
+}
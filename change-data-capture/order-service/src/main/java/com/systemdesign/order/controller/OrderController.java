@@ -1,11 +1,16 @@
 package com.systemdesign.order.controller;
 
 import com.systemdesign.order.entity.Order;
+import com.systemdesign.order.entity.OrderStatus;
+import com.systemdesign.order.service.OrderCache;
 import com.systemdesign.order.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -14,6 +19,9 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final String NEXT_AFTER_ID_HEADER = "X-Next-After-Id";
+
     private final OrderService orderService;
 
     @PostMapping
@@ -22,14 +30,37 @@ public class OrderController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
     }
 
+    // Keyset pagination: pass the X-Next-After-Id of one page as afterId to get the next
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<List<Order>> getOrders(@RequestParam(required = false) Long afterId,
+                                                 @RequestParam(defaultValue = "100") int limit,
+                                                 @RequestParam(required = false) OrderStatus status,
+                                                 @RequestParam(required = false) String customerId) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Order> orders = orderService.getOrders(afterId, pageSize, status, customerId);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (orders.size() == pageSize) {
+            response.header(NEXT_AFTER_ID_HEADER, String.valueOf(orders.get(orders.size() - 1).getId()));
+        }
+        return response.body(orders);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(required = false) OrderStatus status,
+                                                              @RequestParam(required = false) String customerId) {
+        StreamingResponseBody body = out -> orderService.exportOrders(status, customerId, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
+    // Pollers send the last ETag back in If-None-Match and get a bodiless 304 until the order changes
     @GetMapping("/{id}")
-    public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
-        return ResponseEntity.ok(orderService.getOrderById(id));
+    public ResponseEntity<Order> getOrderById(@PathVariable Long id, WebRequest request) {
+        OrderCache.CachedOrder cached = orderService.getCachedOrder(id);
+        if (request.checkNotModified(cached.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(cached.etag()).body(cached.order());
     }
 
     @PutMapping("/{id}")
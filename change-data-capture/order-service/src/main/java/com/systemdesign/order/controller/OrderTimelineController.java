@@ -0,0 +1,31 @@
+package com.systemdesign.order.controller;
+
+import com.systemdesign.order.service.OrderTimelines;
+import com.systemdesign.order.service.OrderTimelines.OrderTimeline;
+import com.systemdesign.order.service.OrderTimelines.StageLatency;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/orders")
+@RequiredArgsConstructor
+public class OrderTimelineController {
+
+    private final OrderTimelines orderTimelines;
+
+    // Percentiles of each saga stage across the orders this instance has seen
+    @GetMapping("/stage-latencies")
+    public ResponseEntity<List<StageLatency>> getStageLatencies() {
+        return ResponseEntity.ok(orderTimelines.stageLatencies());
+    }
+
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<OrderTimeline> getTimeline(@PathVariable Long id) {
+        return orderTimelines.find(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -9,7 +9,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(columnList = "customer_id, id"),
+        @Index(columnList = "status, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
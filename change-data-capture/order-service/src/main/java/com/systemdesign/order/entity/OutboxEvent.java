@@ -0,0 +1,55 @@
+package com.systemdesign.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Domain event written in the same transaction as the order change, published by the relay in outbox mode
+@Entity
+@Table(name = "order_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Type eventType;
+
+    @Column(nullable = false, length = 2048)
+    private String payload;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public enum Type {
+        ORDER_CREATED("order-created"),
+        ORDER_UPDATED("order-updated"),
+        ORDER_DELETED("order-deleted");
+
+        private final String topic;
+
+        Type(String topic) {
+            this.topic = topic;
+        }
+
+        public String topic() {
+            return topic;
+        }
+    }
+}
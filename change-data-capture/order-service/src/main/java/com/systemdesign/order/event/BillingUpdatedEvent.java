@@ -0,0 +1,15 @@
+package com.systemdesign.order.event;
+
+import com.systemdesign.cdc.EventReader;
+
+// Row of the invoices table as published on billing-updated
+public record BillingUpdatedEvent(String operation, Long orderId, String status) {
+
+    public static final EventReader<BillingUpdatedEvent> READER = EventReader.of(row -> new BillingUpdatedEvent(
+            row.operation(), row.getLong("order_id"), row.getString("status")), "order_id", "status");
+
+    // Re-emitted by a snapshot, the change itself was already applied
+    public boolean isSnapshotRead() {
+        return "r".equals(operation);
+    }
+}
@@ -1,6 +1,24 @@
 package com.systemdesign.order.listener;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.systemdesign.cdc.BinaryChangeEventSerializer;
+import com.systemdesign.cdc.ChangeEventSerializer;
+import com.systemdesign.cdc.DeadLetters;
+import com.systemdesign.cdc.EventIds;
+import com.systemdesign.cdc.EventKeys;
+import com.systemdesign.cdc.FlightRecorder;
+import com.systemdesign.cdc.RateLimitedLog;
+import com.systemdesign.cdc.RelayHealthIndicator;
+import com.systemdesign.cdc.RelayMetrics;
+import com.systemdesign.cdc.RelayPublisher;
+import com.systemdesign.cdc.SchemaCatalog;
+import com.systemdesign.cdc.ThreadFactories;
+import com.systemdesign.cdc.UpdateDiff;
+import com.systemdesign.order.cdc.IncrementalSnapshots;
+import com.systemdesign.order.cdc.UpdateCoalescer;
+import com.systemdesign.order.entity.OutboxEvent;
+import com.systemdesign.order.service.OrderCache;
+import com.systemdesign.order.service.OrderOutbox;
 import io.debezium.config.Configuration;
 import io.debezium.embedded.Connect;
 import io.debezium.engine.DebeziumEngine;
@@ -9,103 +27,398 @@ import io.debezium.engine.format.ChangeEventFormat;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.source.SourceRecord;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.Executor;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @Component
-public class DebeziumListener {
-
-    private final Executor executor = Executors.newSingleThreadExecutor();
-    private final DebeziumEngine<RecordChangeEvent<SourceRecord>> debeziumEngine;
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final ObjectMapper objectMapper;
-
-    public DebeziumListener(Configuration debeziumConfig, 
-                           KafkaTemplate<String, String> kafkaTemplate,
-                           ObjectMapper objectMapper) {
-        this.kafkaTemplate = kafkaTemplate;
-        this.objectMapper = objectMapper;
-        
-        this.debeziumEngine = DebeziumEngine.create(ChangeEventFormat.of(Connect.class))
-                .using(debeziumConfig.asProperties())
-                .notifying(this::handleChangeEvent)
+public class DebeziumListener implements DebeziumEngine.ChangeConsumer<RecordChangeEvent<SourceRecord>> {
+
+    // Debezium's default topic.heartbeat.prefix
+    private static final String HEARTBEAT_TOPIC_PREFIX = "__debezium-heartbeat.";
+    private static final CompletableFuture<Void> NOTHING_TO_SEND = CompletableFuture.completedFuture(null);
+    private static final RateLimitedLog rateLimitedLog = new RateLimitedLog(log);
+
+    private final ScheduledExecutorService executor;
+    private final Properties engineProperties;
+    private final RelayHealthIndicator relayHealth;
+    private final long restartBackoffInitialMs;
+    private final long restartBackoffMaxMs;
+    private volatile DebeziumEngine<RecordChangeEvent<SourceRecord>> debeziumEngine;
+    // Consecutive failed runs of the engine, reset once a batch goes through
+    private volatile int restarts;
+    private volatile boolean stopping;
+    private final RelayPublisher relayPublisher;
+    private final OrderCache orderCache;
+    private final OrderOutbox orderOutbox;
+    private final ChangeEventSerializer serializer;
+    private final BinaryChangeEventSerializer binarySerializer = new BinaryChangeEventSerializer();
+    private final SchemaCatalog schemaCatalog;
+    private final Set<String> binaryTopics;
+    private final UpdateDiff updateDiff;
+    private final IncrementalSnapshots incrementalSnapshots;
+    private final RelayMetrics relayMetrics;
+    private final FlightRecorder flightRecorder;
+    private final long sendTimeoutMs;
+    private final UpdateCoalescer updateCoalescer;
+    private final ScheduledExecutorService coalescingFlusher;
+    private final long coalesceWindowMs;
+    // Relayed records not marked processed yet, in binlog order; only the engine thread touches it, since
+    // the committer updates engine state without synchronization
+    private final Deque<Relayed> unmarked = new ArrayDeque<>();
+
+    public DebeziumListener(Configuration debeziumConfig,
+                           RelayPublisher relayPublisher,
+                           OrderCache orderCache,
+                           OrderOutbox orderOutbox,
+                           ObjectMapper objectMapper,
+                           IncrementalSnapshots incrementalSnapshots,
+                           SchemaCatalog schemaCatalog,
+                           RelayMetrics relayMetrics,
+                           FlightRecorder flightRecorder,
+                           RelayHealthIndicator relayHealth,
+                           @Value("${debezium.relay.send.timeout.ms}") long sendTimeoutMs,
+                           @Value("${debezium.relay.restart.backoff.initial.ms}") long restartBackoffInitialMs,
+                           @Value("${debezium.relay.restart.backoff.max.ms}") long restartBackoffMaxMs,
+                           @Value("${debezium.relay.binary.topics}") String[] binaryTopics,
+                           @Value("${debezium.relay.update.diff.columns}") String updateDiffColumns,
+                           @Value("${debezium.relay.coalesce.window.ms}") long coalesceWindowMs,
+                           @Value("${debezium.relay.coalesce.max.latency.ms}") long coalesceMaxLatencyMs,
+                           Environment environment) {
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactories.named(environment, "debezium-engine"));
+        this.engineProperties = debeziumConfig.asProperties();
+        this.relayHealth = relayHealth;
+        this.restartBackoffInitialMs = restartBackoffInitialMs;
+        this.restartBackoffMaxMs = restartBackoffMaxMs;
+        this.relayPublisher = relayPublisher;
+        this.orderCache = orderCache;
+        this.orderOutbox = orderOutbox;
+        this.serializer = new ChangeEventSerializer(objectMapper);
+        this.incrementalSnapshots = incrementalSnapshots;
+        this.schemaCatalog = schemaCatalog;
+        this.relayMetrics = relayMetrics;
+        this.flightRecorder = flightRecorder;
+        this.binaryTopics = Set.copyOf(Arrays.asList(binaryTopics));
+        this.updateDiff = new UpdateDiff(updateDiffColumns);
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.updateCoalescer = new UpdateCoalescer(this::send, coalesceWindowMs, coalesceMaxLatencyMs);
+        this.coalescingFlusher = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactories.named(environment, "relay-coalescer"));
+        this.coalesceWindowMs = coalesceWindowMs;
+    }
+
+    // A fresh engine per run resumes from the committed offsets; what the failed run relayed but did
+    // not mark is read again
+    private void runEngine() {
+        unmarked.clear();
+        DebeziumEngine<RecordChangeEvent<SourceRecord>> engine =
+                DebeziumEngine.create(ChangeEventFormat.of(Connect.class))
+                .using(engineProperties)
+                .using(this::handleCompletion)
+                .notifying(this)
                 .build();
+        debeziumEngine = engine;
+        // Checked after publishing the engine, so either this sees the stop or the stop sees this engine
+        if (stopping) {
+            return;
+        }
+        relayHealth.running();
+        engine.run();
+    }
+
+    @Override
+    public void handleBatch(List<RecordChangeEvent<SourceRecord>> records,
+                            DebeziumEngine.RecordCommitter<RecordChangeEvent<SourceRecord>> committer)
+            throws InterruptedException {
+        // Send the whole batch first so the producer can pipeline it, then walk the acks
+        // in binlog order: an offset is only marked once Kafka has the record
+        for (RecordChangeEvent<SourceRecord> record : records) {
+            unmarked.addLast(new Relayed(record, handleChangeEvent(record.record())));
+        }
+        markAcknowledged(committer);
+        committer.markBatchFinished();
+        restarts = 0;
+    }
+
+    private record Relayed(RecordChangeEvent<SourceRecord> record, CompletableFuture<?> ack) {
+    }
+
+    /**
+     * Marks relayed records processed in binlog order, on the engine thread. Records behind an update held
+     * in the coalescing window stay unmarked; once the flusher has sent it they are marked by the next
+     * batch, which walks from the oldest unmarked record.
+     */
+    private void markAcknowledged(DebeziumEngine.RecordCommitter<RecordChangeEvent<SourceRecord>> committer)
+            throws InterruptedException {
+        while (!unmarked.isEmpty()) {
+            Relayed head = unmarked.peekFirst();
+            if (UpdateCoalescer.isHeld(head.ack())) {
+                return;
+            }
+            awaitAck(head.ack());
+            committer.markProcessed(head.record());
+            unmarked.removeFirst();
+            markOutboxPublished(head.record().record());
+        }
+    }
+
+    private void markOutboxPublished(SourceRecord sourceRecord) {
+        Struct value = (Struct) sourceRecord.value();
+        Struct source = value == null ? null : value.getStruct("source");
+        if (source != null && OrderOutbox.TABLE.equals(source.getString("table")) && value.getStruct("after") != null) {
+            orderOutbox.markPublished(value.getStruct("after").getInt64("id"));
+        }
     }
 
-    private void handleChangeEvent(RecordChangeEvent<SourceRecord> sourceRecordRecordChangeEvent) {
-        SourceRecord sourceRecord = sourceRecordRecordChangeEvent.record();
-        
-        log.info("Key = {}, Value = {}", sourceRecord.key(), sourceRecord.value());
+    private CompletableFuture<?> handleChangeEvent(SourceRecord sourceRecord) throws InterruptedException {
+        // Heartbeats only exist to make the engine deliver a batch, which marks what the coalescer has flushed
+        if (sourceRecord.topic().startsWith(HEARTBEAT_TOPIC_PREFIX)) {
+            return NOTHING_TO_SEND;
+        }
+        if (IncrementalSnapshots.NOTIFICATION_TOPIC.equals(sourceRecord.topic())) {
+            incrementalSnapshots.onNotification((Struct) sourceRecord.value());
+            return NOTHING_TO_SEND;
+        }
 
         Struct sourceRecordValue = (Struct) sourceRecord.value();
-        
         if (sourceRecordValue != null) {
+            relayMetrics.recordEvent(sourceRecordValue);
+        }
+        recordRelayIn(sourceRecord, sourceRecordValue);
+
+        Struct source = sourceRecordValue == null ? null : sourceRecordValue.getStruct("source");
+        if (source != null && OrderOutbox.TABLE.equals(source.getString("table"))) {
+            return handleOutboxEvent(sourceRecordValue);
+        }
+
+        // Signals and snapshot watermarks are captured from the binlog too, they are not business data
+        if (sourceRecordValue != null && !incrementalSnapshots.isSignalTable(source)) {
             String operation = sourceRecordValue.getString("op");
             String topic = getTopicFromOperation(operation);
-            
+
             if (topic != null) {
-                Map<String, Object> payload = new HashMap<>();
-                payload.put("operation", operation);
-                
-                if ("c".equals(operation) || "u".equals(operation)) {
-                    // CREATE or UPDATE - get 'after' data
-                    Struct after = (Struct) sourceRecordValue.get("after");
-                    payload.put("data", extractData(after));
-                } else if ("d".equals(operation)) {
-                    // DELETE - get 'before' data
-                    Struct before = (Struct) sourceRecordValue.get("before");
-                    payload.put("data", extractData(before));
-                }
-                
-                try {
-                    String message = objectMapper.writeValueAsString(payload);
-                    kafkaTemplate.send(topic, message);
-                    log.info("Sent CDC event to Kafka topic: {} - Operation: {}", topic, operation);
-                } catch (Exception e) {
-                    log.error("Error sending CDC event to Kafka", e);
+                // CREATE or UPDATE carry the 'after' image, DELETE the 'before' image
+                Struct data = (Struct) sourceRecordValue.get("d".equals(operation) ? "before" : "after");
+                orderCache.invalidate(data.getInt64("id"));
+                String key = EventKeys.fromRecordKey(sourceRecord.key());
+
+                if ("u".equals(operation)) {
+                    return relayUpdate(sourceRecord, sourceRecordValue, topic, key);
                 }
+                return flushAndSend(toProducerRecord(topic, key, operation, data, sourceRecordValue));
             }
         }
+        return NOTHING_TO_SEND;
+    }
+
+    // Topic, key, binlog coordinates and operation only, never the row images
+    private void recordRelayIn(SourceRecord sourceRecord, Struct value) {
+        flightRecorder.record(FlightRecorder.Stage.RELAY_IN, sourceRecord.topic(), -1, -1,
+                EventKeys.fromRecordKey(sourceRecord.key()),
+                value == null ? null : EventIds.fromSource(value),
+                value == null ? "tombstone" : value.getString("op"));
+    }
+
+    // An update replacing a held one is diffed from the held update's before image, so the event that
+    // finally goes out carries every column changed during the window
+    private CompletableFuture<?> relayUpdate(SourceRecord sourceRecord, Struct value, String topic, String key)
+            throws InterruptedException {
+        ReentrantLock coalescerLock = updateCoalescer.lock();
+        coalescerLock.lock();
+        try {
+            Struct before = updateCoalescer.heldBefore(key);
+            if (before == null) {
+                before = value.getStruct("before");
+            }
+            Struct data = updateData(sourceRecord, value, before);
+            if (data == null) {
+                // Back to the state consumers already have, so a held update must not go out either
+                updateCoalescer.discard(key);
+                return NOTHING_TO_SEND;
+            }
+            ProducerRecord<String, byte[]> producerRecord = toProducerRecord(topic, key, "u", data, value);
+            // A dead letter is not the key's latest state, it must neither replace nor be replaced by a held update
+            return DeadLetters.isDeadLetter(producerRecord)
+                    ? send(producerRecord)
+                    : updateCoalescer.offer(producerRecord, before);
+        } finally {
+            coalescerLock.unlock();
+        }
+    }
+
+    // An event that cannot be encoded becomes a dead letter, which is sent and acked like any other record
+    private ProducerRecord<String, byte[]> toProducerRecord(String topic, String key, String operation, Struct data,
+                                                            Struct value) {
+        byte[] message;
+        try {
+            long startNanos = System.nanoTime();
+            message = encode(topic, operation, data);
+            relayMetrics.recordConversion(topic, message, startNanos);
+        } catch (Exception e) {
+            rateLimitedLog.error("Error converting CDC event, sending it to the dead-letter topic", e);
+            return DeadLetters.of(topic, key, value, e);
+        }
+
+        ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(topic, key, message);
+        String eventId = EventIds.fromSource(value);
+        if (eventId != null) {
+            producerRecord.headers().add(EventIds.HEADER, EventIds.toHeaderValue(eventId));
+        }
+        return producerRecord;
+    }
+
+    // New outbox rows are published as written; the deletes of the purge are not events
+    private CompletableFuture<?> handleOutboxEvent(Struct value) throws InterruptedException {
+        String operation = value.getString("op");
+        if (!"c".equals(operation) && !"r".equals(operation)) {
+            return NOTHING_TO_SEND;
+        }
+        Struct row = value.getStruct("after");
+        long outboxId = row.getInt64("id");
+        Long orderId = row.getInt64("aggregate_id");
+        OutboxEvent.Type type;
+        try {
+            type = OutboxEvent.Type.valueOf(row.getString("event_type"));
+        } catch (IllegalArgumentException e) {
+            rateLimitedLog.error("Unknown outbox event type {}, sending outbox event {} to the dead-letter topic",
+                    row.getString("event_type"), outboxId);
+            return send(DeadLetters.of(OrderOutbox.TABLE, String.valueOf(orderId), value, e));
+        }
+        orderCache.invalidate(orderId);
+
+        ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(type.topic(), String.valueOf(orderId),
+                row.getString("payload").getBytes(StandardCharsets.UTF_8));
+        // The outbox id is unique even when a snapshot re-reads the row
+        producerRecord.headers().add(EventIds.HEADER, EventIds.toHeaderValue(OrderOutbox.TABLE + ":" + outboxId));
+
+        return type == OutboxEvent.Type.ORDER_UPDATED
+                ? updateCoalescer.offer(producerRecord, null)
+                : flushAndSend(producerRecord);
+    }
+
+    // Anything but an update first sends the update held for its key, keeping the per-key order
+    private CompletableFuture<?> flushAndSend(ProducerRecord<String, byte[]> producerRecord)
+            throws InterruptedException {
+        updateCoalescer.flush(producerRecord.key());
+        return send(producerRecord);
+    }
+
+    // Blocks the engine thread while the in-flight caps are reached
+    private CompletableFuture<?> send(ProducerRecord<String, byte[]> producerRecord) throws InterruptedException {
+        return relayPublisher.send(producerRecord);
+    }
+
+    // Only sends: the records behind a sent update are marked by the engine thread
+    private void flushCoalescedUpdates() {
+        try {
+            updateCoalescer.flushDue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            rateLimitedLog.error("Error flushing coalesced updates", e);
+        }
+    }
+
+    // Tables in update-diff mode relay the key and the changed columns; null when nothing relayed changed
+    private Struct updateData(SourceRecord sourceRecord, Struct value, Struct before) {
+        Struct after = value.getStruct("after");
+        Struct source = value.getStruct("source");
+        String table = source.getString("db") + "." + source.getString("table");
+        return updateDiff.isEnabled(table)
+                ? updateDiff.diff(table, before, after, sourceRecord.keySchema())
+                : after;
+    }
+
+    private byte[] encode(String topic, String operation, Struct data) {
+        if (binaryTopics.contains(topic)) {
+            try {
+                return binarySerializer.serialize(operation, data, schemaCatalog.register(data.schema()));
+            } catch (RuntimeException e) {
+                // Consumers detect the format per event, so one row can fall back to JSON
+                rateLimitedLog.warn("Unable to encode {} event in the binary format, sending it as JSON", topic, e);
+            }
+        }
+        return serializer.serialize(operation, data);
+    }
+
+    private void awaitAck(CompletableFuture<?> ack) throws InterruptedException {
+        try {
+            ack.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Offsets stay at the last acknowledged record, so the engine resumes from here on restart
+            throw new IllegalStateException("CDC event was not acknowledged by Kafka", e);
+        }
     }
 
     private String getTopicFromOperation(String operation) {
         return switch (operation) {
             case "c" -> "order-created";
-            case "u" -> "order-updated";
+            // Snapshot reads re-emit the current row; consumers tell them apart by the "r" operation
+            case "u", "r" -> "order-updated";
             case "d" -> "order-deleted";
             default -> null;
         };
     }
 
-    private Map<String, Object> extractData(Struct struct) {
-        Map<String, Object> data = new HashMap<>();
-        for (Field field : struct.schema().fields()) {
-            data.put(field.name(), struct.get(field));
+    // Runs on the engine thread as the run ends; the restart is queued behind it on the same thread
+    private void handleCompletion(boolean success, String message, Throwable error) {
+        if (stopping) {
+            return;
         }
-        return data;
+        long delayMs = Math.min(restartBackoffMaxMs, restartBackoffInitialMs << Math.min(restarts, 20));
+        restarts++;
+        log.error("Debezium engine for Order Service stopped: {}, restarting in {} ms", message, delayMs, error);
+        relayHealth.stopped(message, error, restarts, delayMs);
+        executor.schedule(this::runEngine, delayMs, TimeUnit.MILLISECONDS);
     }
 
     @PostConstruct
     private void start() {
-        this.executor.execute(debeziumEngine);
+        if (updateCoalescer.isEnabled()) {
+            long period = Math.max(1, coalesceWindowMs / 2);
+            coalescingFlusher.scheduleWithFixedDelay(this::flushCoalescedUpdates, period, period, TimeUnit.MILLISECONDS);
+        }
+        this.executor.execute(this::runEngine);
         log.info("Debezium engine started for Order Service");
     }
 
     @PreDestroy
-    private void stop() throws IOException {
-        if (this.debeziumEngine != null) {
-            this.debeziumEngine.close();
-            log.info("Debezium engine stopped for Order Service");
+    private void stop() throws IOException, InterruptedException {
+        stopping = true;
+        executor.shutdown();
+        // Held updates go out before the engine stops. The records behind them are not marked, the
+        // committer belongs to the engine thread, so they are relayed again on restart and consumers
+        // drop them by event id
+        coalescingFlusher.shutdownNow();
+        try {
+            updateCoalescer.close();
+        } finally {
+            DebeziumEngine<RecordChangeEvent<SourceRecord>> engine = this.debeziumEngine;
+            if (engine != null) {
+                engine.close();
+            }
         }
+        log.info("Debezium engine stopped for Order Service");
     }
 }
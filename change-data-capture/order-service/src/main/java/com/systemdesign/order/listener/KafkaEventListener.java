@@ -1,13 +1,16 @@
 package com.systemdesign.order.listener;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.systemdesign.order.entity.Order;
+import com.systemdesign.cdc.listener.KeyOrderedExecutor;
 import com.systemdesign.order.entity.OrderStatus;
-import com.systemdesign.order.repository.OrderRepository;
+import com.systemdesign.order.event.BillingUpdatedEvent;
+import com.systemdesign.order.event.InventoryUpdatedEvent;
+import com.systemdesign.order.service.OrderService;
+import com.systemdesign.order.service.OrderTimelines;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
 @Slf4j
@@ -15,56 +18,64 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class KafkaEventListener {
 
-    private final OrderRepository orderRepository;
-    private final ObjectMapper objectMapper;
+    private final OrderService orderService;
+    private final OrderTimelines orderTimelines;
+    private final KeyOrderedExecutor inventoryUpdateExecutor;
+    private final KeyOrderedExecutor billingUpdateExecutor;
 
-    @KafkaListener(topics = "inventory-updated", groupId = "order-service-group")
-    public void handleInventoryUpdate(String message) {
-        try {
-            log.info("Received inventory update: {}", message);
-            JsonNode jsonNode = objectMapper.readTree(message);
-            JsonNode data = jsonNode.get("data");
-            
-            Long orderId = data.get("order_id").asLong();
-            String status = data.get("status").asText();
-            
-            orderRepository.findById(orderId).ifPresent(order -> {
-                if ("RESERVED".equals(status)) {
-                    order.setStatus(OrderStatus.INVENTORY_RESERVED);
-                    log.info("Order {} - Inventory reserved successfully", orderId);
-                } else if ("FAILED".equals(status)) {
-                    order.setStatus(OrderStatus.INVENTORY_FAILED);
-                    log.info("Order {} - Inventory reservation failed", orderId);
-                }
-                orderRepository.save(order);
-            });
-        } catch (Exception e) {
-            log.error("Error processing inventory update", e);
+    @KafkaListener(id = "inventoryUpdated", topics = "inventory-updated", groupId = "order-service-group",
+            containerFactory = "keyOrderedContainerFactory")
+    public void handleInventoryUpdate(ConsumerRecord<String, InventoryUpdatedEvent> record, Acknowledgment ack)
+            throws InterruptedException {
+        inventoryUpdateExecutor.execute(record, () -> applyInventoryUpdate(record.value()), ack);
+    }
+
+    @KafkaListener(id = "billingUpdated", topics = "billing-updated", groupId = "order-service-group",
+            containerFactory = "keyOrderedContainerFactory")
+    public void handleBillingUpdate(ConsumerRecord<String, BillingUpdatedEvent> record, Acknowledgment ack)
+            throws InterruptedException {
+        billingUpdateExecutor.execute(record, () -> applyBillingUpdate(record.value()), ack);
+    }
+
+    private void applyInventoryUpdate(InventoryUpdatedEvent event) {
+        // Undecodable events arrive as null, the deserializer already logged them
+        if (event == null) {
+            return;
+        }
+        if (event.isSnapshotRead()) {
+            return;
+        }
+
+        // A failure propagates to the executor, which dead-letters the record before acking it
+        Long orderId = event.orderId();
+        String status = event.status();
+
+        if ("RESERVED".equals(status) && orderService.updateStatus(orderId, OrderStatus.INVENTORY_RESERVED)) {
+            log.debug("Order {} - Inventory reserved successfully", orderId);
+            orderTimelines.record(orderId, OrderStatus.INVENTORY_RESERVED);
+        } else if ("FAILED".equals(status) && orderService.updateStatus(orderId, OrderStatus.INVENTORY_FAILED)) {
+            log.debug("Order {} - Inventory reservation failed", orderId);
+            orderTimelines.record(orderId, OrderStatus.INVENTORY_FAILED);
         }
     }
 
-    @KafkaListener(topics = "billing-updated", groupId = "order-service-group")
-    public void handleBillingUpdate(String message) {
-        try {
-            log.info("Received billing update: {}", message);
-            JsonNode jsonNode = objectMapper.readTree(message);
-            JsonNode data = jsonNode.get("data");
-            
-            Long orderId = data.get("order_id").asLong();
-            String status = data.get("status").asText();
-            
-            orderRepository.findById(orderId).ifPresent(order -> {
-                if ("INVOICED".equals(status)) {
-                    order.setStatus(OrderStatus.BILLED);
-                    log.info("Order {} - Invoice generated", orderId);
-                } else if ("PAID".equals(status)) {
-                    order.setStatus(OrderStatus.PAID);
-                    log.info("Order {} - Payment received", orderId);
-                }
-                orderRepository.save(order);
-            });
-        } catch (Exception e) {
-            log.error("Error processing billing update", e);
+    private void applyBillingUpdate(BillingUpdatedEvent event) {
+        if (event == null) {
+            return;
+        }
+        if (event.isSnapshotRead()) {
+            return;
+        }
+
+        Long orderId = event.orderId();
+        String status = event.status();
+
+        if ("INVOICED".equals(status) && orderService.updateStatus(orderId, OrderStatus.BILLED)) {
+            log.debug("Order {} - Invoice generated", orderId);
+            orderTimelines.record(orderId, OrderStatus.BILLED);
+        } else if ("PAID".equals(status) && orderService.updateStatus(orderId, OrderStatus.PAID)) {
+            log.debug("Order {} - Payment received", orderId);
+            orderTimelines.record(orderId, OrderStatus.PAID);
         }
     }
 }
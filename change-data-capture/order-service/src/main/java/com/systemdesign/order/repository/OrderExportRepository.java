@@ -0,0 +1,70 @@
+package com.systemdesign.order.repository;
+
+import com.systemdesign.order.entity.Order;
+import com.systemdesign.order.entity.OrderStatus;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Forward-only cursor over orders on a pool of its own: only these connections get useCursorFetch=true, so
+// MySQL hands rows over fetchSize at a time and the export never holds more than one fetch in memory, while
+// the service's other queries keep client-side statements. The pool size caps concurrent exports.
+@Repository
+public class OrderExportRepository {
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderExportRepository(DataSourceProperties dataSourceProperties,
+                                 @Value("${order.export.fetch.size}") int fetchSize,
+                                 @Value("${order.export.pool.size}") int poolSize) {
+        this.dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("order-export");
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setReadOnly(true);
+        if (dataSource.getJdbcUrl().startsWith("jdbc:mysql:")) {
+            dataSource.addDataSourceProperty("useCursorFetch", "true");
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public void forEach(OrderStatus status, String customerId, Consumer<Order> action) {
+        StringBuilder sql = new StringBuilder("SELECT id, customer_id, product_id, quantity, total_amount, status, "
+                + "created_at, updated_at FROM orders WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND status = ?");
+            args.add(status.name());
+        }
+        if (customerId != null) {
+            sql.append(" AND customer_id = ?");
+            args.add(customerId);
+        }
+        sql.append(" ORDER BY id");
+
+        jdbcTemplate.query(sql.toString(), rs -> {
+            action.accept(new Order(
+                    rs.getLong("id"),
+                    rs.getString("customer_id"),
+                    rs.getString("product_id"),
+                    rs.getInt("quantity"),
+                    rs.getBigDecimal("total_amount"),
+                    OrderStatus.valueOf(rs.getString("status")),
+                    rs.getTimestamp("created_at").toLocalDateTime(),
+                    rs.getTimestamp("updated_at").toLocalDateTime()));
+        }, args.toArray());
+    }
+
+    @PreDestroy
+    void close() {
+        dataSource.close();
+    }
+}
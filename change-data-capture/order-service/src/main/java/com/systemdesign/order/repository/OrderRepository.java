@@ -1,9 +1,31 @@
 package com.systemdesign.order.repository;
 
 import com.systemdesign.order.entity.Order;
+import com.systemdesign.order.entity.OrderStatus;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
+
+    // Keyset page: rows after the last id of the previous page, so no page costs more than its own rows.
+    // Only the given filters become predicates, so each combination gets its own statement and plan and
+    // can use the matching (status, id) or (customer_id, id) index
+    default List<Order> findPage(Long afterId, OrderStatus status, String customerId, int limit) {
+        Specification<Order> page = (order, query, cb) -> {
+            query.orderBy(cb.asc(order.get("id")));
+            return cb.greaterThan(order.get("id"), afterId);
+        };
+        if (status != null) {
+            page = page.and((order, query, cb) -> cb.equal(order.get("status"), status));
+        }
+        if (customerId != null) {
+            page = page.and((order, query, cb) -> cb.equal(order.get("customerId"), customerId));
+        }
+        return findBy(page, query -> query.limit(limit).all());
+    }
 }
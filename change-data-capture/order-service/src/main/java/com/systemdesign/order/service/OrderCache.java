@@ -0,0 +1,80 @@
+package com.systemdesign.order.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.systemdesign.order.entity.Order;
+import com.systemdesign.order.repository.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+/**
+ * Read-through cache of orders for the polling GET endpoint. Entries are dropped by the service's own
+ * Debezium stream whenever an orders row changes, whoever wrote it, and by local writes right after
+ * they commit; size and time bounds keep it small. Cached orders are shared, so callers must not
+ * modify them.
+ */
+@Component
+public class OrderCache {
+
+    private final OrderRepository orderRepository;
+    private final Cache<Long, CachedOrder> orders;
+
+    public OrderCache(OrderRepository orderRepository,
+                      MeterRegistry meterRegistry,
+                      @Value("${order.cache.maximum.size}") long maximumSize,
+                      @Value("${order.cache.expire.after.write.seconds}") long expireAfterWriteSeconds) {
+        this.orderRepository = orderRepository;
+        this.orders = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, orders, "orders");
+    }
+
+    public record CachedOrder(Order order, String etag) {
+    }
+
+    public Optional<CachedOrder> get(Long id) {
+        return Optional.ofNullable(orders.get(id, this::load));
+    }
+
+    public void invalidate(Long id) {
+        orders.invalidate(id);
+    }
+
+    // A local write is visible to readers as soon as it commits, without waiting for the CDC round trip
+    public void invalidateAfterCommit(Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(id);
+            }
+        });
+    }
+
+    private CachedOrder load(Long id) {
+        return orderRepository.findById(id)
+                .map(order -> new CachedOrder(order, etagOf(order)))
+                .orElse(null);
+    }
+
+    // Every JPA update bumps updatedAt, so it identifies the version without serializing the order
+    private static String etagOf(Order order) {
+        long updatedAtMicros = order.getUpdatedAt() == null ? 0
+                : order.getUpdatedAt().toEpochSecond(ZoneOffset.UTC) * 1_000_000 + order.getUpdatedAt().getNano() / 1_000;
+        return "\"" + order.getId() + "-" + updatedAtMicros + "-" + order.getStatus() + "\"";
+    }
+}
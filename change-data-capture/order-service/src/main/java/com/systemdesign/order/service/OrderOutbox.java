@@ -0,0 +1,116 @@
+package com.systemdesign.order.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.systemdesign.order.entity.Order;
+import com.systemdesign.order.entity.OutboxEvent;
+import com.systemdesign.order.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbox mode: instead of publishing full orders rows, every order change adds a compact event to
+ * {@value #TABLE} in the caller's transaction, so events exist exactly for the changes that commit.
+ * The relay captures only that table and publishes each row as is; rows it has published are purged
+ * in the background. Payloads keep the {"operation":..,"data":{..}} shape of the row events with just
+ * the columns consumers read, so listeners handle both modes.
+ */
+@Slf4j
+@Component
+public class OrderOutbox {
+
+    public static final String TABLE = "order_outbox";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int purgeBatchSize;
+    private final AtomicLong publishedId = new AtomicLong();
+    private long purgedId;
+
+    public OrderOutbox(OutboxEventRepository outboxEventRepository,
+                       JdbcTemplate jdbcTemplate,
+                       ObjectMapper objectMapper,
+                       @Value("${order.outbox.enabled}") boolean enabled,
+                       @Value("${order.outbox.purge.batch.size}") int purgeBatchSize) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.purgeBatchSize = purgeBatchSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void orderCreated(Order order) {
+        if (enabled) {
+            ObjectNode data = objectMapper.createObjectNode()
+                    .put("id", order.getId())
+                    .put("customer_id", order.getCustomerId())
+                    .put("product_id", order.getProductId())
+                    .put("quantity", order.getQuantity())
+                    .put("total_amount", order.getTotalAmount())
+                    .put("status", order.getStatus().name());
+            append(OutboxEvent.Type.ORDER_CREATED, order.getId(), "c", data);
+        }
+    }
+
+    // Only the new status: consumers already have the rest of the order from its created event
+    public void statusChanged(Order order) {
+        if (enabled) {
+            ObjectNode data = objectMapper.createObjectNode()
+                    .put("id", order.getId())
+                    .put("status", order.getStatus().name());
+            append(OutboxEvent.Type.ORDER_UPDATED, order.getId(), "u", data);
+        }
+    }
+
+    public void orderDeleted(Long orderId) {
+        if (enabled) {
+            append(OutboxEvent.Type.ORDER_DELETED, orderId, "d", objectMapper.createObjectNode().put("id", orderId));
+        }
+    }
+
+    private void append(OutboxEvent.Type type, Long orderId, String operation, ObjectNode data) {
+        ObjectNode event = objectMapper.createObjectNode().put("operation", operation);
+        event.set("data", data);
+        try {
+            outboxEventRepository.save(new OutboxEvent(null, orderId, type, objectMapper.writeValueAsString(event), null));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Called by the relay once every outbox row up to this id has been acknowledged by Kafka
+    public void markPublished(long outboxId) {
+        publishedId.accumulateAndGet(outboxId, Math::max);
+    }
+
+    // Published rows are still in the binlog, so a relay restarting from older offsets republishes them
+    @Scheduled(fixedDelayString = "${order.outbox.purge.interval.ms}")
+    public void purge() {
+        long upTo = publishedId.get();
+        if (upTo <= purgedId) {
+            return;
+        }
+        int deleted;
+        int total = 0;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE id <= ? ORDER BY id LIMIT ?",
+                    upTo, purgeBatchSize);
+            total += deleted;
+        } while (deleted == purgeBatchSize);
+        purgedId = upTo;
+        log.debug("Purged {} published outbox events up to id {}", total, upTo);
+    }
+}
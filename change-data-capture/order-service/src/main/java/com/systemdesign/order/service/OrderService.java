@@ -1,12 +1,19 @@
 package com.systemdesign.order.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.systemdesign.order.entity.Order;
+import com.systemdesign.order.entity.OrderStatus;
+import com.systemdesign.order.repository.OrderExportRepository;
 import com.systemdesign.order.repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @Slf4j
@@ -15,33 +22,80 @@ import java.util.List;
 public class OrderService {
 
     private final OrderRepository orderRepository;
+    private final OrderCache orderCache;
+    private final OrderExportRepository orderExportRepository;
+    private final ObjectMapper objectMapper;
+    private final OrderOutbox orderOutbox;
+    private final OrderTimelines orderTimelines;
 
     @Transactional
     public Order createOrder(Order order) {
         Order savedOrder = orderRepository.save(order);
-        log.info("Order created with ID: {}", savedOrder.getId());
+        orderOutbox.orderCreated(savedOrder);
+        orderTimelines.record(savedOrder.getId(), savedOrder.getStatus());
+        log.debug("Order created with ID: {}", savedOrder.getId());
         return savedOrder;
     }
 
-    public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+    public List<Order> getOrders(Long afterId, int limit, OrderStatus status, String customerId) {
+        return orderRepository.findPage(afterId == null ? 0L : afterId, status, customerId, limit);
+    }
+
+    // One order per line, written as rows come off the cursor
+    public void exportOrders(OrderStatus status, String customerId, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setCodec(objectMapper);
+            generator.setRootValueSeparator(null);
+            orderExportRepository.forEach(status, customerId, order -> {
+                try {
+                    generator.writeObject(order);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
     }
 
     public Order getOrderById(Long id) {
-        return orderRepository.findById(id)
+        return getCachedOrder(id).order();
+    }
+
+    public OrderCache.CachedOrder getCachedOrder(Long id) {
+        return orderCache.get(id)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
     }
 
+    // Loads the managed entity, never the shared cached copy
     @Transactional
     public Order updateOrder(Long id, Order orderDetails) {
-        Order order = getOrderById(id);
+        Order order = orderRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
         order.setStatus(orderDetails.getStatus());
-        return orderRepository.save(order);
+        orderCache.invalidateAfterCommit(id);
+        Order savedOrder = orderRepository.save(order);
+        orderOutbox.statusChanged(savedOrder);
+        return savedOrder;
+    }
+
+    // Status moves driven by other services' events; returns false when the order does not exist
+    @Transactional
+    public boolean updateStatus(Long id, OrderStatus status) {
+        return orderRepository.findById(id)
+                .map(order -> {
+                    order.setStatus(status);
+                    orderCache.invalidateAfterCommit(id);
+                    orderOutbox.statusChanged(orderRepository.save(order));
+                    return true;
+                })
+                .orElse(false);
     }
 
     @Transactional
     public void deleteOrder(Long id) {
         orderRepository.deleteById(id);
-        log.info("Order deleted with ID: {}", id);
+        orderOutbox.orderDeleted(id);
+        orderCache.invalidateAfterCommit(id);
+        log.debug("Order deleted with ID: {}", id);
     }
 }
@@ -0,0 +1,176 @@
+package com.systemdesign.order.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.systemdesign.order.entity.OrderStatus;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Saga stage timing: the time this instance applied each status of an order is kept in a small
+ * per-order timeline, and every completed stage feeds an HDR histogram of its duration. Timelines are
+ * bounded in number and age; orders created on another instance or before a restart have no PENDING
+ * time, so only the stages between the statuses seen here are measured. A status is timed once, the
+ * first time it is applied, so redelivered events do not skew the histograms.
+ */
+@Component
+public class OrderTimelines {
+
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final Cache<Long, Timeline> timelines;
+    private final long highestTrackableMs;
+    private final Map<Stage, StageHistogram> histograms = new EnumMap<>(Stage.class);
+
+    public OrderTimelines(@Value("${order.timeline.maximum.size}") long maximumSize,
+                          @Value("${order.timeline.expire.after.write.minutes}") long expireAfterWriteMinutes,
+                          @Value("${order.timeline.highest.trackable.ms}") long highestTrackableMs) {
+        this.timelines = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .build();
+        this.highestTrackableMs = highestTrackableMs;
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new StageHistogram(highestTrackableMs));
+        }
+    }
+
+    public enum Stage {
+        INVENTORY_RESERVATION(OrderStatus.PENDING, OrderStatus.INVENTORY_RESERVED),
+        INVENTORY_FAILURE(OrderStatus.PENDING, OrderStatus.INVENTORY_FAILED),
+        BILLING(OrderStatus.INVENTORY_RESERVED, OrderStatus.BILLED),
+        PAYMENT(OrderStatus.BILLED, OrderStatus.PAID),
+        CHECKOUT(OrderStatus.PENDING, OrderStatus.PAID);
+
+        private final OrderStatus from;
+        private final OrderStatus to;
+
+        Stage(OrderStatus from, OrderStatus to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    public record Transition(OrderStatus status, Instant at) {
+    }
+
+    public record OrderTimeline(Long orderId, List<Transition> transitions, Map<Stage, Long> stageMillis) {
+    }
+
+    public record StageLatency(Stage stage, OrderStatus from, OrderStatus to, long count,
+                               long minMs, double meanMs, long p50Ms, long p90Ms, long p99Ms, long p999Ms,
+                               long maxMs) {
+    }
+
+    public void record(Long orderId, OrderStatus status) {
+        record(orderId, status, System.currentTimeMillis());
+    }
+
+    public void record(Long orderId, OrderStatus status, long atMillis) {
+        Timeline timeline = timelines.get(orderId, id -> new Timeline());
+        if (!timeline.mark(status, atMillis)) {
+            return;
+        }
+        for (Stage stage : Stage.values()) {
+            if (stage.to == status) {
+                long startedAt = timeline.at(stage.from);
+                if (startedAt != 0) {
+                    histograms.get(stage).record(Math.min(Math.max(0, atMillis - startedAt), highestTrackableMs));
+                }
+            }
+        }
+    }
+
+    public Optional<OrderTimeline> find(Long orderId) {
+        Timeline timeline = timelines.getIfPresent(orderId);
+        if (timeline == null) {
+            return Optional.empty();
+        }
+        long[] times = timeline.snapshot();
+        List<Transition> transitions = new ArrayList<>();
+        for (OrderStatus status : STATUSES) {
+            if (times[status.ordinal()] != 0) {
+                transitions.add(new Transition(status, Instant.ofEpochMilli(times[status.ordinal()])));
+            }
+        }
+        transitions.sort((a, b) -> a.at().compareTo(b.at()));
+        Map<Stage, Long> stageMillis = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            long from = times[stage.from.ordinal()];
+            long to = times[stage.to.ordinal()];
+            if (from != 0 && to != 0) {
+                stageMillis.put(stage, to - from);
+            }
+        }
+        return Optional.of(new OrderTimeline(orderId, transitions, stageMillis));
+    }
+
+    // Durations recorded since startup
+    public List<StageLatency> stageLatencies() {
+        List<StageLatency> latencies = new ArrayList<>();
+        for (Stage stage : Stage.values()) {
+            Histogram total = histograms.get(stage).total();
+            boolean empty = total.getTotalCount() == 0;
+            latencies.add(new StageLatency(stage, stage.from, stage.to, total.getTotalCount(),
+                    empty ? 0 : total.getMinValue(), total.getMean(),
+                    total.getValueAtPercentile(50), total.getValueAtPercentile(90),
+                    total.getValueAtPercentile(99), total.getValueAtPercentile(99.9), total.getMaxValue()));
+        }
+        return latencies;
+    }
+
+    // Epoch millis per status ordinal, 0 while the status has not been applied
+    private static final class Timeline {
+
+        private final long[] times = new long[STATUSES.length];
+
+        synchronized boolean mark(OrderStatus status, long atMillis) {
+            if (times[status.ordinal()] != 0) {
+                return false;
+            }
+            times[status.ordinal()] = atMillis;
+            return true;
+        }
+
+        synchronized long at(OrderStatus status) {
+            return times[status.ordinal()];
+        }
+
+        synchronized long[] snapshot() {
+            return times.clone();
+        }
+    }
+
+    // Listener threads record into the Recorder without locking; reads fold its interval into the total
+    private static final class StageHistogram {
+
+        private final Recorder recorder;
+        private final Histogram total;
+        private Histogram interval;
+
+        private StageHistogram(long highestTrackableMs) {
+            this.recorder = new Recorder(highestTrackableMs, 2);
+            this.total = new Histogram(highestTrackableMs, 2);
+        }
+
+        void record(long millis) {
+            recorder.recordValue(millis);
+        }
+
+        synchronized Histogram total() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return total.copy();
+        }
+    }
+}
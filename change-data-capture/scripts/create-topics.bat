@@ -18,6 +18,23 @@ bin\windows\kafka-topics.bat --create --topic inventory-updated --bootstrap-serv
 echo Creating billing-updated topic...
 bin\windows\kafka-topics.bat --create --topic billing-updated --bootstrap-server localhost:9092 --partitions 3 --replication-factor 1
 
+echo Creating cdc-schemas topic (compacted schema catalog of binary events)...
+bin\windows\kafka-topics.bat --create --topic cdc-schemas --bootstrap-server localhost:9092 --partitions 1 --replication-factor 1 --config cleanup.policy=compact
+
+echo Creating dead-letter topics (change events the relays could not convert)...
+bin\windows\kafka-topics.bat --create --topic order-created.DLT --bootstrap-server localhost:9092 --partitions 1 --replication-factor 1
+bin\windows\kafka-topics.bat --create --topic order-updated.DLT --bootstrap-server localhost:9092 --partitions 1 --replication-factor 1
+bin\windows\kafka-topics.bat --create --topic order-deleted.DLT --bootstrap-server localhost:9092 --partitions 1 --replication-factor 1
+bin\windows\kafka-topics.bat --create --topic order_outbox.DLT --bootstrap-server localhost:9092 --partitions 1 --replication-factor 1
+bin\windows\kafka-topics.bat --create --topic inventory-updated.DLT --bootstrap-server localhost:9092 --partitions 1 --replication-factor 1
+bin\windows\kafka-topics.bat --create --topic billing-updated.DLT --bootstrap-server localhost:9092 --partitions 1 --replication-factor 1
+
+echo Creating consumer dead-letter topics (records a service's listener could not process)...
+bin\windows\kafka-topics.bat --create --topic inventory-updated.order-service.DLT --bootstrap-server localhost:9092 --partitions 1 --replication-factor 1
+bin\windows\kafka-topics.bat --create --topic billing-updated.order-service.DLT --bootstrap-server localhost:9092 --partitions 1 --replication-factor 1
+bin\windows\kafka-topics.bat --create --topic order-created.inventory-service.DLT --bootstrap-server localhost:9092 --partitions 1 --replication-factor 1
+bin\windows\kafka-topics.bat --create --topic inventory-updated.billing-service.DLT --bootstrap-server localhost:9092 --partitions 1 --replication-factor 1
+
 echo.
 echo All topics created successfully!
 echo.